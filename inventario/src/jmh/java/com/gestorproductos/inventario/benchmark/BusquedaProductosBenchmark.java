@@ -0,0 +1,81 @@
+package com.gestorproductos.inventario.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.gestorproductos.inventario.dto.ResultadoBusqueda;
+import com.gestorproductos.inventario.model.EstadoProducto;
+import com.gestorproductos.inventario.model.Producto;
+import com.gestorproductos.inventario.service.ProductoService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BusquedaProductosBenchmark {
+
+    private static final String[] NOMBRES = { "Aceite de oliva", "Café molido", "Azúcar morena", "Arroz integral",
+            "Leche descremada", "Pan de molde", "Jabón líquido", "Té verde", "Galletas de avena", "Atún en lata" };
+    private static final String[] DESCRIPCIONES = { "Envase económico", "Presentación familiar",
+            "Producto importado", "Edición limitada", "Sin azúcar añadida" };
+
+    @Param({ "1000", "10000" })
+    private int tamanoCatalogo;
+
+    private ConfigurableApplicationContext contexto;
+    private ProductoService productoService;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("busqueda" + tamanoCatalogo);
+        productoService = contexto.getBean(ProductoService.class);
+        // Altas por el servicio para que el índice se actualice con los eventos de cada una.
+        for (int i = 0; i < tamanoCatalogo; i++) {
+            Producto producto = new Producto();
+            producto.setNombreProducto(NOMBRES[i % NOMBRES.length] + " " + i);
+            producto.setDescripcion(DESCRIPCIONES[i % DESCRIPCIONES.length]);
+            producto.setPrecioVenta(new BigDecimal("12.50"));
+            producto.setCostoCompra(new BigDecimal("10.00"));
+            producto.setStockActual(100);
+            productoService.crear(producto);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<ResultadoBusqueda> buscarPalabraCompleta() {
+        return productoService.buscar("cafe", null, 20);
+    }
+
+    @Benchmark
+    public List<ResultadoBusqueda> autocompletarPrefijo() {
+        return productoService.buscar("aceite oli", null, 20);
+    }
+
+    @Benchmark
+    public List<ResultadoBusqueda> buscarConFiltroDeEstado() {
+        return productoService.buscar("azucar", EstadoProducto.ACTIVO, 20);
+    }
+}
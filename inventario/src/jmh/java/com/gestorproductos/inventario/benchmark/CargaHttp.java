@@ -0,0 +1,120 @@
+package com.gestorproductos.inventario.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generador de carga HTTP para comparar el modo de hilos de plataforma con el de hilos
+ * virtuales contra una instancia ya levantada:
+ *
+ * <pre>
+ * java -jar target/inventario-0.0.1-SNAPSHOT.jar
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.gestorproductos.inventario.benchmark.CargaHttp \
+ *     -Dexec.args="http://localhost:8080 plataforma 500 60 1"
+ *
+ * java -jar target/inventario-0.0.1-SNAPSHOT.jar --spring.profiles.active=virtual
+ * (mismo comando con "virtual" como etiqueta)
+ * </pre>
+ *
+ * Argumentos: URL base, etiqueta del modo, clientes concurrentes, duración en segundos e id de
+ * producto a consultar. Imprime una línea JSON por corrida con throughput y percentiles.
+ */
+public final class CargaHttp {
+
+    private CargaHttp() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String urlBase = args.length > 0 ? args[0] : "http://localhost:8080";
+        String modo = args.length > 1 ? args[1] : "sin-etiqueta";
+        int clientes = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int segundos = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+        int idProducto = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+        HttpClient cliente = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        HttpRequest porId = HttpRequest.newBuilder(URI.create(urlBase + "/api/productos/" + idProducto)).GET().build();
+        HttpRequest pagina = HttpRequest.newBuilder(URI.create(urlBase + "/api/productos?limit=50")).GET().build();
+
+        long fin = System.nanoTime() + Duration.ofSeconds(segundos).toNanos();
+        List<Future<Resultado>> futuros = new ArrayList<>(clientes);
+        try (ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clientes; i++) {
+                futuros.add(ejecutor.submit(() -> ejecutar(cliente, porId, pagina, fin)));
+            }
+        }
+
+        Resultado total = new Resultado();
+        for (Future<Resultado> futuro : futuros) {
+            total.combinar(futuro.get());
+        }
+        long[] latencias = Arrays.copyOf(total.latencias, total.cantidad);
+        Arrays.sort(latencias);
+
+        System.out.printf(
+                "{\"modo\":\"%s\",\"clientes\":%d,\"segundos\":%d,\"solicitudes\":%d,\"errores\":%d,"
+                        + "\"throughput\":%.1f,\"p50_ms\":%.2f,\"p99_ms\":%.2f,\"max_ms\":%.2f}%n",
+                modo, clientes, segundos, total.cantidad, total.errores, (double) total.cantidad / segundos,
+                percentil(latencias, 0.50), percentil(latencias, 0.99), percentil(latencias, 1.0));
+    }
+
+    private static Resultado ejecutar(HttpClient cliente, HttpRequest porId, HttpRequest pagina, long fin) {
+        Resultado resultado = new Resultado();
+        while (System.nanoTime() < fin) {
+            HttpRequest solicitud = ThreadLocalRandom.current().nextInt(10) < 8 ? porId : pagina;
+            long inicio = System.nanoTime();
+            try {
+                HttpResponse<Void> respuesta = cliente.send(solicitud, HttpResponse.BodyHandlers.discarding());
+                if (respuesta.statusCode() >= 400) {
+                    resultado.errores++;
+                }
+            } catch (Exception e) {
+                resultado.errores++;
+            }
+            resultado.registrar(System.nanoTime() - inicio);
+        }
+        return resultado;
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int indice = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(indice, 0)] / 1_000_000.0;
+    }
+
+    private static final class Resultado {
+
+        private long[] latencias = new long[1024];
+        private int cantidad;
+        private long errores;
+
+        private void registrar(long nanos) {
+            if (cantidad == latencias.length) {
+                latencias = Arrays.copyOf(latencias, cantidad * 2);
+            }
+            latencias[cantidad++] = nanos;
+        }
+
+        private void combinar(Resultado otro) {
+            for (int i = 0; i < otro.cantidad; i++) {
+                registrar(otro.latencias[i]);
+            }
+            errores += otro.errores;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.gestorproductos.inventario.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.gestorproductos.inventario.InventarioApplication;
+import com.gestorproductos.inventario.model.EstadoProducto;
+
+/**
+ * Arranca la aplicación sin servidor web sobre una base H2 en memoria, para que los
+ * benchmarks no dependan de un PostgreSQL externo.
+ */
+final class ContextoBenchmark {
+
+    private static final int TAMANO_LOTE = 1000;
+
+    private ContextoBenchmark() {
+    }
+
+    static ConfigurableApplicationContext iniciar(String nombreBase) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(InventarioApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run("--spring.datasource.url=jdbc:h2:mem:" + nombreBase + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.flyway.enabled=false",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--inventario.stock.ledger.habilitado=false",
+                        "--inventario.diario-stock.habilitado=false",
+                        // Sin Flyway no existe outbox_posicion: el relay solo corre al arrancar.
+                        "--inventario.outbox.intervalo-relay-ms=3600000",
+                        "--logging.level.root=WARN");
+    }
+
+    static void poblarProductos(JdbcTemplate jdbcTemplate, int cantidad) {
+        List<Object[]> lote = new ArrayList<>(TAMANO_LOTE);
+        for (int i = 0; i < cantidad; i++) {
+            lote.add(new Object[] { "Producto " + i, "Descripción del producto " + i, new BigDecimal("12.50"),
+                    new BigDecimal("10.00"), 100, EstadoProducto.ACTIVO.getCodigo() });
+            if (lote.size() == TAMANO_LOTE) {
+                insertar(jdbcTemplate, lote);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            insertar(jdbcTemplate, lote);
+        }
+    }
+
+    private static void insertar(JdbcTemplate jdbcTemplate, List<Object[]> lote) {
+        jdbcTemplate.batchUpdate("INSERT INTO productos (id_producto, nombre_producto, descripcion, precio_venta, "
+                + "costo_compra, stock_actual, estado_producto, version) "
+                + "VALUES (nextval('productos_seq'), ?, ?, ?, ?, ?, ?, 0)", lote);
+    }
+}
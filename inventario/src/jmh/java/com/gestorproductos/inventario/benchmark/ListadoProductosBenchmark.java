@@ -0,0 +1,102 @@
+package com.gestorproductos.inventario.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestorproductos.inventario.dto.CamposProducto;
+import com.gestorproductos.inventario.dto.PaginaProductos;
+import com.gestorproductos.inventario.dto.PaginaVistas;
+import com.gestorproductos.inventario.dto.ProductoVista;
+import com.gestorproductos.inventario.model.Producto;
+import com.gestorproductos.inventario.service.ProductoService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListadoProductosBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    private int tamanoCatalogo;
+
+    private ConfigurableApplicationContext contexto;
+    private ProductoService productoService;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("listado" + tamanoCatalogo);
+        productoService = contexto.getBean(ProductoService.class);
+        objectMapper = contexto.getBean(ObjectMapper.class);
+        ContextoBenchmark.poblarProductos(contexto.getBean(JdbcTemplate.class), tamanoCatalogo);
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<Producto> obtenerTodos() {
+        return productoService.obtenerTodos();
+    }
+
+    @Benchmark
+    public PaginaProductos obtenerPrimeraPagina() {
+        return productoService.obtenerPagina(null, 100);
+    }
+
+    @Benchmark
+    public List<ProductoVista> obtenerVistas() {
+        return productoService.obtenerVistas();
+    }
+
+    @Benchmark
+    public PaginaVistas obtenerPrimeraPaginaVistas() {
+        return productoService.obtenerPaginaVistas(null, 100);
+    }
+
+    // Respuesta completa del listado: consulta más serialización. Con "-prof gc" se compara
+    // la asignación por operación entre la ruta de entidades y la de proyecciones.
+
+    @Benchmark
+    public void serializarEntidades() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), productoService.obtenerTodos());
+    }
+
+    @Benchmark
+    public void serializarVistas() throws IOException {
+        List<ProductoVista> vistas = productoService.obtenerVistas();
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            CamposProducto.TODOS.escribirLista(generador, vistas);
+        }
+    }
+
+    @Benchmark
+    public void recorrerTodos(Blackhole blackhole) {
+        productoService.recorrerTodos(blackhole::consume);
+    }
+}
@@ -0,0 +1,129 @@
+package com.gestorproductos.inventario.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import com.gestorproductos.inventario.model.CategoriaProducto;
+import com.gestorproductos.inventario.model.Producto;
+import com.gestorproductos.inventario.service.CategoriaProductoService;
+import com.gestorproductos.inventario.service.ProductoService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductoServiceBenchmark {
+
+    private static final BigDecimal COSTO_REPOSICION = new BigDecimal("10.37");
+    private static final int CATEGORIAS = 50;
+
+    private ConfigurableApplicationContext contexto;
+    private ProductoService productoService;
+    private CategoriaProductoService categoriaProductoService;
+
+    private Integer idProductoReposicion;
+    private Integer idProductoVenta;
+    private Integer idCategoria;
+    private String nombreCategoria;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("servicio");
+        productoService = contexto.getBean(ProductoService.class);
+        categoriaProductoService = contexto.getBean(CategoriaProductoService.class);
+
+        idProductoReposicion = productoService.crear(nuevoProducto("Reposición", 10)).getIdProducto();
+        idProductoVenta = productoService.crear(nuevoProducto("Venta", Integer.MAX_VALUE / 2)).getIdProducto();
+
+        for (int i = 0; i < CATEGORIAS; i++) {
+            CategoriaProducto categoria = new CategoriaProducto();
+            categoria.setNombreCategoria("Categoría " + i);
+            categoria.setDescripcion("Descripción de la categoría " + i);
+            CategoriaProducto creada = categoriaProductoService.crear(categoria);
+            idCategoria = creada.getIdCategoria();
+            nombreCategoria = creada.getNombreCategoria();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Producto aumentarStock() {
+        return productoService.aumentarStock(idProductoReposicion, 3, COSTO_REPOSICION);
+    }
+
+    @Benchmark
+    public Producto crearProducto() {
+        return productoService.crear(nuevoProducto("Alta", 25));
+    }
+
+    @Benchmark
+    public Object disminuirStock() {
+        try {
+            return productoService.disminuirStock(idProductoVenta, 1);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object disminuirStockConcurrente() {
+        try {
+            return productoService.disminuirStock(idProductoVenta, 1);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Producto obtenerProductoPorId() {
+        return productoService.obtenerPorId(idProductoVenta);
+    }
+
+    @Benchmark
+    public CategoriaProducto obtenerCategoriaPorId() {
+        return categoriaProductoService.obtenerPorId(idCategoria);
+    }
+
+    @Benchmark
+    public CategoriaProducto obtenerCategoriaPorNombre() {
+        return categoriaProductoService.obtenerPorNombre(nombreCategoria);
+    }
+
+    @Benchmark
+    public List<CategoriaProducto> obtenerTodasLasCategorias() {
+        return categoriaProductoService.obtenerTodas();
+    }
+
+    private static Producto nuevoProducto(String nombre, int stock) {
+        Producto producto = new Producto();
+        producto.setNombreProducto(nombre);
+        producto.setPrecioVenta(new BigDecimal("15.00"));
+        producto.setCostoCompra(new BigDecimal("12.00"));
+        producto.setStockActual(stock);
+        return producto;
+    }
+}
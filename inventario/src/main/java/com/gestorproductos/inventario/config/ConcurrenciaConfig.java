@@ -0,0 +1,29 @@
+package com.gestorproductos.inventario.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+@ConditionalOnProperty(name = "inventario.concurrencia.limite.habilitado", havingValue = "true")
+public class ConcurrenciaConfig {
+
+    @Bean
+    public FilterRegistrationBean<LimiteConcurrenciaFilter> limiteConcurrenciaFilter(MeterRegistry meterRegistry,
+            @Value("${inventario.concurrencia.limite.maximo:200}") int maximoConcurrente,
+            @Value("${inventario.concurrencia.limite.espera-maxima-ms:1000}") long esperaMaximaMs) {
+        LimiteConcurrenciaFilter filtro = new LimiteConcurrenciaFilter(maximoConcurrente, esperaMaximaMs);
+        Gauge.builder("inventario.concurrencia.permisos.disponibles", filtro, LimiteConcurrenciaFilter::getPermisosDisponibles)
+                .description("Permisos libres del límite de concurrencia de la API")
+                .register(meterRegistry);
+
+        FilterRegistrationBean<LimiteConcurrenciaFilter> registro = new FilterRegistrationBean<>(filtro);
+        registro.addUrlPatterns("/api/*");
+        return registro;
+    }
+}
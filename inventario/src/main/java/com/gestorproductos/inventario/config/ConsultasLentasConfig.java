@@ -0,0 +1,43 @@
+package com.gestorproductos.inventario.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+@Configuration
+@ConditionalOnProperty(name = "inventario.consultas-lentas.habilitado", havingValue = "true")
+public class ConsultasLentasConfig {
+
+    @Bean
+    public static BeanPostProcessor consultasLentasDataSourcePostProcessor(
+            @Value("${inventario.consultas-lentas.umbral-ms:200}") long umbralMs,
+            @Value("${inventario.consultas-lentas.tasa-muestreo:1.0}") double tasaMuestreo) {
+        RegistroConsultasLentas registro = new RegistroConsultasLentas(new ObjectMapper(), umbralMs, tasaMuestreo);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(registro)
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public ContextoOperacionAspect contextoOperacionAspect() {
+        return new ContextoOperacionAspect();
+    }
+}
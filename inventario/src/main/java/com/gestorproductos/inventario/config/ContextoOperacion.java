@@ -0,0 +1,31 @@
+package com.gestorproductos.inventario.config;
+
+/**
+ * Método de servicio que se está ejecutando en el hilo actual, para atribuir cada consulta
+ * SQL a la operación que la originó.
+ */
+public final class ContextoOperacion {
+
+    private static final ThreadLocal<String> OPERACION = new ThreadLocal<>();
+
+    private ContextoOperacion() {
+    }
+
+    public static String actual() {
+        return OPERACION.get();
+    }
+
+    static String establecer(String operacion) {
+        String anterior = OPERACION.get();
+        OPERACION.set(operacion);
+        return anterior;
+    }
+
+    static void restaurar(String anterior) {
+        if (anterior == null) {
+            OPERACION.remove();
+        } else {
+            OPERACION.set(anterior);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.gestorproductos.inventario.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+@Aspect
+public class ContextoOperacionAspect {
+
+    @Around("execution(public * com.gestorproductos.inventario.service.ProductoService.*(..)) || "
+            + "execution(public * com.gestorproductos.inventario.service.CategoriaProductoService.*(..))")
+    public Object registrarOperacion(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operacion = joinPoint.getSignature().getDeclaringType().getSimpleName() + "."
+                + joinPoint.getSignature().getName();
+        String anterior = ContextoOperacion.establecer(operacion);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ContextoOperacion.restaurar(anterior);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.gestorproductos.inventario.config;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Limita cuántas solicitudes de la API se atienden a la vez. Con hilos virtuales Tomcat deja
+ * de acotar la concurrencia, así que sin este límite miles de solicitudes terminarían
+ * esperando una conexión del pool y agotando su timeout.
+ */
+public class LimiteConcurrenciaFilter extends OncePerRequestFilter {
+
+    private final Semaphore permisos;
+    private final long esperaMaximaMs;
+
+    public LimiteConcurrenciaFilter(int maximoConcurrente, long esperaMaximaMs) {
+        this.permisos = new Semaphore(maximoConcurrente, true);
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean adquirido;
+        try {
+            adquirido = permisos.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            adquirido = false;
+        }
+
+        if (!adquirido) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Servicio saturado, reintente en unos instantes");
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    public int getPermisosDisponibles() {
+        return permisos.availablePermits();
+    }
+}
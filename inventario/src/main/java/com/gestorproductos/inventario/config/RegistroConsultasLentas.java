@@ -0,0 +1,67 @@
+package com.gestorproductos.inventario.config;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * Escribe en el logger {@code inventario.consultas-lentas} una línea JSON por cada sentencia
+ * que supera el umbral, muestreando según la tasa configurada.
+ */
+public class RegistroConsultasLentas implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger("inventario.consultas-lentas");
+
+    private final ObjectMapper objectMapper;
+    private final long umbralMs;
+    private final double tasaMuestreo;
+
+    public RegistroConsultasLentas(ObjectMapper objectMapper, long umbralMs, double tasaMuestreo) {
+        this.objectMapper = objectMapper;
+        this.umbralMs = umbralMs;
+        this.tasaMuestreo = tasaMuestreo;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (execInfo.getElapsedTime() < umbralMs) {
+            return;
+        }
+        if (tasaMuestreo < 1.0 && ThreadLocalRandom.current().nextDouble() >= tasaMuestreo) {
+            return;
+        }
+
+        for (QueryInfo queryInfo : queryInfoList) {
+            Map<String, Object> registro = new LinkedHashMap<>();
+            registro.put("timestamp", Instant.now().toString());
+            registro.put("duracionMs", execInfo.getElapsedTime());
+            registro.put("sql", queryInfo.getQuery());
+            registro.put("parametros", queryInfo.getParametersList().isEmpty() ? 0
+                    : queryInfo.getParametersList().get(0).size());
+            registro.put("lote", execInfo.isBatch() ? execInfo.getBatchSize() : 1);
+            registro.put("exito", execInfo.isSuccess());
+            registro.put("operacion", ContextoOperacion.actual());
+            try {
+                log.warn(objectMapper.writeValueAsString(registro));
+            } catch (JsonProcessingException e) {
+                log.warn("No se pudo serializar la consulta lenta: {}", queryInfo.getQuery(), e);
+            }
+        }
+    }
+}
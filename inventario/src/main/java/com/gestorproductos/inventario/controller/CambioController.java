@@ -0,0 +1,50 @@
+package com.gestorproductos.inventario.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.gestorproductos.inventario.dto.PaginaCambios;
+import com.gestorproductos.inventario.exception.InvalidRequestException;
+import com.gestorproductos.inventario.service.CambioService;
+import com.gestorproductos.inventario.service.MetricasInventario;
+
+/**
+ * Flujo de cambios publicados por el outbox. Un consumidor guarda el {@code siguiente} de cada
+ * página y lo envía como {@code desde} para reanudar sin perder ni repetir cambios.
+ */
+@RestController
+@RequestMapping("/api/cambios")
+public class CambioController {
+
+    private final CambioService cambioService;
+    private final MetricasInventario metricasInventario;
+
+    public CambioController(CambioService cambioService, MetricasInventario metricasInventario) {
+        this.cambioService = cambioService;
+        this.metricasInventario = metricasInventario;
+    }
+
+    @GetMapping
+    public ResponseEntity<PaginaCambios> obtenerCambios(
+            @RequestParam(defaultValue = "0") Long desde,
+            @RequestParam(defaultValue = "100") Integer limit) {
+        return ResponseEntity.ok(cambioService.obtenerDesde(desde, limit));
+    }
+
+    @ExceptionHandler({InvalidRequestException.class})
+    public ResponseEntity<String> manejarSolicitudInvalida(InvalidRequestException ex) {
+        metricasInventario.registrarRechazo(ex);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler({Exception.class})
+    public ResponseEntity<String> manejarErrorGeneral(Exception ex) {
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error interno del servidor: " + ex.getMessage());
+    }
+}
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,27 +20,37 @@ import com.gestorproductos.inventario.exception.InvalidRequestException;
 import com.gestorproductos.inventario.exception.NotFoundException;
 import com.gestorproductos.inventario.model.CategoriaProducto;
 import com.gestorproductos.inventario.service.CategoriaProductoService;
+import com.gestorproductos.inventario.service.MetricasInventario;
 
 @RestController
 @RequestMapping("/api/categorias")
 public class CategoriaProductoController {
 
     private final CategoriaProductoService categoriaProductoService;
+    private final MetricasInventario metricasInventario;
 
-    public CategoriaProductoController(CategoriaProductoService categoriaProductoService) {
+    public CategoriaProductoController(CategoriaProductoService categoriaProductoService,
+            MetricasInventario metricasInventario) {
         this.categoriaProductoService = categoriaProductoService;
+        this.metricasInventario = metricasInventario;
     }
 
     @GetMapping
     public ResponseEntity<List<CategoriaProducto>> obtenerTodasCategorias() {
         List<CategoriaProducto> categorias = categoriaProductoService.obtenerTodas();
-        return ResponseEntity.ok(categorias);
+        // Las categorías ya están en memoria: con la ETag, Spring responde 304 a un
+        // If-None-Match que coincida sin serializar el cuerpo.
+        return ResponseEntity.ok()
+                .eTag(EtiquetasHttp.etiqueta(categoriaProductoService.marcaVersion(categorias)))
+                .body(categorias);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<CategoriaProducto> obtenerCategoriaPorId(@PathVariable Integer id) {
         CategoriaProducto categoria = categoriaProductoService.obtenerPorId(id);
-        return ResponseEntity.ok(categoria);
+        return ResponseEntity.ok()
+                .eTag(EtiquetasHttp.etiqueta(categoriaProductoService.marcaVersion(categoria)))
+                .body(categoria);
     }
 
     @PostMapping
@@ -74,9 +85,17 @@ public class CategoriaProductoController {
 
     @ExceptionHandler({InvalidRequestException.class})
     public ResponseEntity<String> manejarSolicitudInvalida(InvalidRequestException ex) {
+        metricasInventario.registrarRechazo(ex);
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
+    @ExceptionHandler({ObjectOptimisticLockingFailureException.class})
+    public ResponseEntity<String> manejarConflictoVersion(ObjectOptimisticLockingFailureException ex) {
+        metricasInventario.registrarRechazo(ex);
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("La categoría fue modificada por otra operación, reintente la solicitud");
+    }
+
     @ExceptionHandler({Exception.class})
     public ResponseEntity<String> manejarErrorGeneral(Exception ex) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -0,0 +1,62 @@
+package com.gestorproductos.inventario.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversión entre las marcas de versión de los servicios y las ETags de HTTP. Las ETags son
+ * fuertes: la marca cambia con cada cambio de la representación.
+ */
+final class EtiquetasHttp {
+
+    private static final String PREFIJO_DEBIL = "W/";
+
+    private EtiquetasHttp() {
+    }
+
+    static String etiqueta(String marca) {
+        return "\"" + marca + "\"";
+    }
+
+    /**
+     * Evalúa {@code If-None-Match} con comparación débil, como pide la RFC 9110 para GET.
+     */
+    static boolean noModificado(List<String> ifNoneMatch, String etiqueta) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String valor : ifNoneMatch) {
+            String limpio = valor.trim();
+            if (limpio.startsWith(PREFIJO_DEBIL)) {
+                limpio = limpio.substring(PREFIJO_DEBIL.length());
+            }
+            if (limpio.equals("*") || limpio.equals(etiqueta)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marcas aceptadas por {@code If-Match}, o {@code null} si no hay condición ({@code *} o sin
+     * encabezado). Una ETag débil nunca coincide: If-Match usa comparación fuerte.
+     */
+    static List<String> marcasEsperadas(List<String> ifMatch) {
+        if (ifMatch == null || ifMatch.isEmpty()) {
+            return null;
+        }
+        List<String> marcas = new ArrayList<>(ifMatch.size());
+        for (String valor : ifMatch) {
+            String limpio = valor.trim();
+            if (limpio.equals("*")) {
+                return null;
+            }
+            if (limpio.length() >= 2 && limpio.startsWith("\"") && limpio.endsWith("\"")) {
+                marcas.add(limpio.substring(1, limpio.length() - 1));
+            } else {
+                marcas.add(limpio);
+            }
+        }
+        return marcas;
+    }
+}
@@ -1,25 +1,59 @@
 package com.gestorproductos.inventario.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import com.gestorproductos.inventario.dto.CamposProducto;
+import com.gestorproductos.inventario.dto.DisponibilidadStock;
+import com.gestorproductos.inventario.dto.EstadisticasCache;
+import com.gestorproductos.inventario.dto.MovimientoStock;
+import com.gestorproductos.inventario.dto.PaginaVistas;
+import com.gestorproductos.inventario.dto.ProductoAlta;
+import com.gestorproductos.inventario.dto.ProductoVista;
+import com.gestorproductos.inventario.dto.ResultadoBusqueda;
+import com.gestorproductos.inventario.dto.ResultadoImportacion;
+import com.gestorproductos.inventario.dto.ResultadoMovimiento;
+import com.gestorproductos.inventario.dto.ResumenMovimientos;
+import com.gestorproductos.inventario.dto.ValoracionInventario;
 import com.gestorproductos.inventario.exception.InsufficientStockException;
 import com.gestorproductos.inventario.exception.InvalidProductStateException;
 import com.gestorproductos.inventario.exception.InvalidRequestException;
 import com.gestorproductos.inventario.exception.NotFoundException;
+import com.gestorproductos.inventario.exception.PreconditionFailedException;
+import com.gestorproductos.inventario.model.EstadoProducto;
 import com.gestorproductos.inventario.model.Producto;
+import com.gestorproductos.inventario.service.CatalogoService;
+import com.gestorproductos.inventario.service.CombinadorMovimientos;
+import com.gestorproductos.inventario.service.MetricasInventario;
 import com.gestorproductos.inventario.service.ProductoService;
 
 @RestController
@@ -27,68 +61,243 @@ import com.gestorproductos.inventario.service.ProductoService;
 public class ProductoController {
 
     private final ProductoService productoService;
+    private final ObjectMapper objectMapper;
+    private final MetricasInventario metricasInventario;
+    private final CatalogoService catalogoService;
+    private final CombinadorMovimientos combinadorMovimientos;
 
-    public ProductoController(ProductoService productoService) {
+    public ProductoController(ProductoService productoService, ObjectMapper objectMapper,
+            MetricasInventario metricasInventario, CatalogoService catalogoService,
+            CombinadorMovimientos combinadorMovimientos) {
         this.productoService = productoService;
+        this.objectMapper = objectMapper;
+        this.metricasInventario = metricasInventario;
+        this.catalogoService = catalogoService;
+        this.combinadorMovimientos = combinadorMovimientos;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Producto> obtenerProductoPorId(@PathVariable Integer id) {
+    public ResponseEntity<byte[]> obtenerProductoPorId(@PathVariable Integer id,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) List<String> ifNoneMatch)
+            throws IOException {
+        CamposProducto campos = CamposProducto.seleccionar(fields);
+        // La validación lee solo la versión; el producto se carga si hay que enviarlo.
+        if (ifNoneMatch != null) {
+            String etiqueta = EtiquetasHttp.etiqueta(productoService.obtenerMarcaVersion(id));
+            if (EtiquetasHttp.noModificado(ifNoneMatch, etiqueta)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etiqueta).build();
+            }
+        }
         Producto producto = productoService.obtenerPorId(id);
-        return ResponseEntity.ok(producto);
+        ByteArrayBuilder buffer = new ByteArrayBuilder();
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(buffer)) {
+            campos.escribir(generador, ProductoVista.desde(producto));
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(EtiquetasHttp.etiqueta(productoService.marcaVersion(producto)))
+                .body(buffer.toByteArray());
     }
 
     @GetMapping
-    public ResponseEntity<List<Producto>> obtenerTodosProductos(
+    public ResponseEntity<StreamingResponseBody> obtenerTodosProductos(
             @RequestParam(required = false) String estado,
-            @RequestParam(required = false) Integer stockMinimo) {
-        
-        if (estado != null && !estado.trim().isEmpty()) {
-            List<Producto> productos = productoService.obtenerPorEstado(estado.trim());
-            return ResponseEntity.ok(productos);
+            @RequestParam(required = false) Integer stockMinimo,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) List<String> ifNoneMatch) {
+        CamposProducto campos = CamposProducto.seleccionar(fields);
+        boolean porEstado = estado != null && !estado.trim().isEmpty();
+        if (!porEstado && stockMinimo != null) {
+            // Sale del índice en memoria, que se actualiza después de confirmar cada escritura:
+            // la marca del catálogo podría adelantarse a él, así que este listado no lleva ETag.
+            List<ProductoVista> productos = productoService.obtenerVistasConStockBajo(stockMinimo);
+            return responderJson(null, generador -> campos.escribirLista(generador, productos));
         }
-        
-        if (stockMinimo != null) {
-            List<Producto> productos = productoService.obtenerProductosConStockBajo(stockMinimo);
-            return ResponseEntity.ok(productos);
+
+        String etiqueta = EtiquetasHttp.etiqueta(productoService.obtenerMarcaCatalogo());
+        if (EtiquetasHttp.noModificado(ifNoneMatch, etiqueta)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etiqueta).build();
         }
-        
-        List<Producto> productos = productoService.obtenerTodos();
-        return ResponseEntity.ok(productos);
+        List<ProductoVista> productos = porEstado
+                ? productoService.obtenerVistasPorEstado(EstadoProducto.desde(estado))
+                : productoService.obtenerVistas();
+        return responderJson(etiqueta, generador -> campos.escribirLista(generador, productos));
+    }
+
+    @GetMapping("/cache/estadisticas")
+    public ResponseEntity<EstadisticasCache> obtenerEstadisticasCache() {
+        return ResponseEntity.ok(productoService.obtenerEstadisticasCache());
+    }
+
+    @GetMapping("/buscar")
+    public ResponseEntity<List<ResultadoBusqueda>> buscarProductos(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String estado,
+            @RequestParam(defaultValue = "20") Integer limit) {
+        return ResponseEntity.ok(productoService.buscar(q, EstadoProducto.desde(estado), limit));
+    }
+
+    @GetMapping(value = "/stock-bajo/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter transmitirAlertasStockBajo(@RequestParam(required = false) Integer umbral) {
+        return productoService.suscribirAlertasStockBajo(umbral);
+    }
+
+    @GetMapping("/{id}/disponibilidad")
+    public ResponseEntity<DisponibilidadStock> obtenerDisponibilidad(@PathVariable Integer id) {
+        return ResponseEntity.ok(productoService.obtenerDisponibilidad(id));
+    }
+
+    @GetMapping("/{id}/historial-stock")
+    public ResponseEntity<List<ResumenMovimientos>> obtenerHistorialStock(@PathVariable Integer id,
+            @RequestParam(required = false) String granularidad,
+            @RequestParam(required = false) Instant desde,
+            @RequestParam(required = false) Instant hasta) {
+        return ResponseEntity.ok(productoService.obtenerHistorialStock(id, granularidad, desde, hasta));
+    }
+
+    @GetMapping("/historial-stock")
+    public ResponseEntity<List<ResumenMovimientos>> obtenerHistorialStockCatalogo(
+            @RequestParam(required = false) String granularidad,
+            @RequestParam(required = false) Instant desde,
+            @RequestParam(required = false) Instant hasta) {
+        return ResponseEntity.ok(productoService.obtenerHistorialStock(null, granularidad, desde, hasta));
+    }
+
+    @GetMapping("/valoracion")
+    public ResponseEntity<ValoracionInventario> obtenerValoracion() {
+        return ResponseEntity.ok(productoService.obtenerValoracion());
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<StreamingResponseBody> obtenerPaginaProductos(
+            @RequestParam Integer limit,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) List<String> ifNoneMatch) {
+        CamposProducto campos = CamposProducto.seleccionar(fields);
+        String etiqueta = EtiquetasHttp.etiqueta(productoService.obtenerMarcaCatalogo());
+        if (EtiquetasHttp.noModificado(ifNoneMatch, etiqueta)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etiqueta).build();
+        }
+        PaginaVistas pagina = productoService.obtenerPaginaVistas(after, limit);
+        return responderJson(etiqueta, generador -> {
+            generador.writeStartObject();
+            generador.writeFieldName("productos");
+            campos.escribirLista(generador, pagina.productos());
+            if (pagina.siguiente() != null) {
+                generador.writeNumberField("siguiente", pagina.siguiente());
+            } else {
+                generador.writeNullField("siguiente");
+            }
+            generador.writeEndObject();
+        });
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> transmitirProductos() {
+        ObjectWriter escritor = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody cuerpo = salida -> productoService.recorrerTodos(producto -> {
+            try {
+                escritor.writeValue(salida, producto);
+                salida.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(cuerpo);
+    }
+
+    @GetMapping(value = "/exportar", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportarCatalogo() {
+        StreamingResponseBody cuerpo = catalogoService::exportarCsv;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"productos.csv\"")
+                .body(cuerpo);
+    }
+
+    @PostMapping(value = "/importar", consumes = "text/csv")
+    public ResponseEntity<ResultadoImportacion> importarCatalogoCsv(InputStream cuerpo) throws IOException {
+        return ResponseEntity.ok(catalogoService.importarCsv(cuerpo));
+    }
+
+    @PostMapping(value = "/importar", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResultadoImportacion> importarCatalogoNdjson(InputStream cuerpo) throws IOException {
+        return ResponseEntity.ok(catalogoService.importarNdjson(cuerpo));
     }
 
     @PostMapping
-    public ResponseEntity<Producto> crearProducto(@RequestBody Producto producto) {
-        Producto productoCreado = productoService.crear(producto);
+    public ResponseEntity<Producto> crearProducto(@RequestBody ProductoAlta alta) {
+        Producto productoCreado = productoService.crear(alta.aProducto());
         return ResponseEntity.status(HttpStatus.CREATED).body(productoCreado);
     }
 
     @PatchMapping("/{id}/estado")
     public ResponseEntity<Producto> cambiarEstadoProducto(
             @PathVariable Integer id, 
-            @RequestBody EstadoRequest estadoRequest) {
-        Producto producto = productoService.cambiarEstado(id, estadoRequest.getEstado());
-        return ResponseEntity.ok(producto);
+            @RequestBody EstadoRequest estadoRequest,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) List<String> ifMatch) {
+        Producto producto = productoService.cambiarEstado(id, EstadoProducto.desde(estadoRequest.getEstado()),
+                EtiquetasHttp.marcasEsperadas(ifMatch));
+        return conEtiqueta(producto);
     }
 
     @PatchMapping("/{id}/stock/aumentar")
     public ResponseEntity<Producto> aumentarStock(
             @PathVariable Integer id, 
-            @RequestBody StockRequest stockRequest) {
-        Producto producto = productoService.aumentarStock(
-            id, 
-            stockRequest.getCantidad(), 
-            stockRequest.getCostoCompra()
-        );
-        return ResponseEntity.ok(producto);
+            @RequestBody StockRequest stockRequest,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) List<String> ifMatch) {
+        List<String> marcas = EtiquetasHttp.marcasEsperadas(ifMatch);
+        // Con If-Match la escritura depende de una versión concreta y no se combina con otras.
+        Producto producto = marcas == null
+                ? combinadorMovimientos.aumentarStock(id, stockRequest.getCantidad(), stockRequest.getCostoCompra())
+                : productoService.aumentarStock(id, stockRequest.getCantidad(), stockRequest.getCostoCompra(),
+                        marcas);
+        return conEtiqueta(producto);
     }
 
     @PatchMapping("/{id}/stock/disminuir")
     public ResponseEntity<Producto> disminuirStock(
             @PathVariable Integer id, 
-            @RequestBody CantidadRequest cantidadRequest) {
-        Producto producto = productoService.disminuirStock(id, cantidadRequest.getCantidad());
-        return ResponseEntity.ok(producto);
+            @RequestBody CantidadRequest cantidadRequest,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) List<String> ifMatch) {
+        List<String> marcas = EtiquetasHttp.marcasEsperadas(ifMatch);
+        Producto producto = marcas == null
+                ? combinadorMovimientos.disminuirStock(id, cantidadRequest.getCantidad())
+                : productoService.disminuirStock(id, cantidadRequest.getCantidad(), marcas);
+        return conEtiqueta(producto);
+    }
+
+    @PostMapping("/stock/movimientos")
+    public ResponseEntity<List<ResultadoMovimiento>> aplicarMovimientosStock(
+            @RequestBody List<MovimientoStock> movimientos) {
+        List<ResultadoMovimiento> resultados = productoService.aplicarMovimientos(movimientos);
+        return ResponseEntity.ok(resultados);
+    }
+
+    private ResponseEntity<Producto> conEtiqueta(Producto producto) {
+        return ResponseEntity.ok()
+                .eTag(EtiquetasHttp.etiqueta(productoService.marcaVersion(producto)))
+                .body(producto);
+    }
+
+    /**
+     * Escribe la respuesta directamente con un {@link JsonGenerator}; los datos ya se leyeron,
+     * así que los errores de la consulta siguen llegando a los manejadores de este controlador.
+     */
+    private ResponseEntity<StreamingResponseBody> responderJson(String etiqueta, EscrituraJson escritura) {
+        StreamingResponseBody cuerpo = salida -> {
+            try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+                generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                escritura.escribir(generador);
+            }
+        };
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (etiqueta != null) {
+            respuesta.eTag(etiqueta);
+        }
+        return respuesta.body(cuerpo);
     }
 
     @ExceptionHandler({NotFoundException.class})
@@ -98,25 +307,56 @@ public class ProductoController {
 
     @ExceptionHandler({InvalidRequestException.class})
     public ResponseEntity<String> manejarSolicitudInvalida(InvalidRequestException ex) {
+        metricasInventario.registrarRechazo(ex);
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
     @ExceptionHandler({InvalidProductStateException.class})
     public ResponseEntity<String> manejarEstadoInvalido(InvalidProductStateException ex) {
+        metricasInventario.registrarRechazo(ex);
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
     @ExceptionHandler({InsufficientStockException.class})
     public ResponseEntity<String> manejarStockInsuficiente(InsufficientStockException ex) {
+        metricasInventario.registrarRechazo(ex);
         return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
     }
 
+    @ExceptionHandler({PreconditionFailedException.class})
+    public ResponseEntity<String> manejarPrecondicionFallida(PreconditionFailedException ex) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .eTag(EtiquetasHttp.etiqueta(ex.getVersionActual()))
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler({HttpMessageNotReadableException.class})
+    public ResponseEntity<String> manejarCuerpoInvalido(HttpMessageNotReadableException ex) {
+        // Un estadoProducto desconocido en el cuerpo llega envuelto por Jackson.
+        if (NestedExceptionUtils.getMostSpecificCause(ex) instanceof InvalidProductStateException estadoInvalido) {
+            return manejarEstadoInvalido(estadoInvalido);
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Cuerpo de la solicitud inválido");
+    }
+
+    @ExceptionHandler({ObjectOptimisticLockingFailureException.class})
+    public ResponseEntity<String> manejarConflictoVersion(ObjectOptimisticLockingFailureException ex) {
+        metricasInventario.registrarRechazo(ex);
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("El producto fue modificado por otra operación, reintente la solicitud");
+    }
+
     @ExceptionHandler({Exception.class})
     public ResponseEntity<String> manejarErrorGeneral(Exception ex) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body("Error interno del servidor: " + ex.getMessage());
     }
 
+    @FunctionalInterface
+    private interface EscrituraJson {
+        void escribir(JsonGenerator generador) throws IOException;
+    }
+
     public static class EstadoRequest {
         private String estado;
 
@@ -0,0 +1,123 @@
+package com.gestorproductos.inventario.controller;
+
+import java.util.UUID;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.gestorproductos.inventario.dto.ReservaStock;
+import com.gestorproductos.inventario.exception.InsufficientStockException;
+import com.gestorproductos.inventario.exception.InvalidRequestException;
+import com.gestorproductos.inventario.exception.NotFoundException;
+import com.gestorproductos.inventario.model.Producto;
+import com.gestorproductos.inventario.service.MetricasInventario;
+import com.gestorproductos.inventario.service.ProductoService;
+
+/**
+ * Reservas de stock para el checkout: se retienen unidades con un vencimiento y luego se
+ * confirman (descuentan el stock) o se liberan. Una reserva vencida se libera sola.
+ */
+@RestController
+@RequestMapping("/api/reservas")
+public class ReservaController {
+
+    private final ProductoService productoService;
+    private final MetricasInventario metricasInventario;
+
+    public ReservaController(ProductoService productoService, MetricasInventario metricasInventario) {
+        this.productoService = productoService;
+        this.metricasInventario = metricasInventario;
+    }
+
+    @PostMapping
+    public ResponseEntity<ReservaStock> reservar(@RequestBody ReservaRequest reservaRequest) {
+        ReservaStock reserva = productoService.reservarStock(reservaRequest.getIdProducto(),
+                reservaRequest.getCantidad(), reservaRequest.getTtlSegundos());
+        return ResponseEntity.status(HttpStatus.CREATED).body(reserva);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ReservaStock> obtenerReserva(@PathVariable UUID id) {
+        return ResponseEntity.ok(productoService.obtenerReserva(id));
+    }
+
+    @PostMapping("/{id}/confirmar")
+    public ResponseEntity<Producto> confirmarReserva(@PathVariable UUID id) {
+        return ResponseEntity.ok(productoService.confirmarReserva(id));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> liberarReserva(@PathVariable UUID id) {
+        productoService.liberarReserva(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @ExceptionHandler({NotFoundException.class})
+    public ResponseEntity<String> manejarNoEncontrado(NotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+    }
+
+    @ExceptionHandler({InvalidRequestException.class})
+    public ResponseEntity<String> manejarSolicitudInvalida(InvalidRequestException ex) {
+        metricasInventario.registrarRechazo(ex);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler({InsufficientStockException.class})
+    public ResponseEntity<String> manejarStockInsuficiente(InsufficientStockException ex) {
+        metricasInventario.registrarRechazo(ex);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler({ObjectOptimisticLockingFailureException.class})
+    public ResponseEntity<String> manejarConflictoVersion(ObjectOptimisticLockingFailureException ex) {
+        metricasInventario.registrarRechazo(ex);
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("El producto fue modificado por otra operación, reintente la solicitud");
+    }
+
+    @ExceptionHandler({Exception.class})
+    public ResponseEntity<String> manejarErrorGeneral(Exception ex) {
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error interno del servidor: " + ex.getMessage());
+    }
+
+    public static class ReservaRequest {
+        private Integer idProducto;
+        private Integer cantidad;
+        private Long ttlSegundos;
+
+        public Integer getIdProducto() {
+            return idProducto;
+        }
+
+        public void setIdProducto(Integer idProducto) {
+            this.idProducto = idProducto;
+        }
+
+        public Integer getCantidad() {
+            return cantidad;
+        }
+
+        public void setCantidad(Integer cantidad) {
+            this.cantidad = cantidad;
+        }
+
+        public Long getTtlSegundos() {
+            return ttlSegundos;
+        }
+
+        public void setTtlSegundos(Long ttlSegundos) {
+            this.ttlSegundos = ttlSegundos;
+        }
+    }
+}
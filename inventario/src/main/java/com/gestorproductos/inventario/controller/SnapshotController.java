@@ -0,0 +1,57 @@
+package com.gestorproductos.inventario.controller;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.gestorproductos.inventario.dto.ManifiestoSnapshot;
+import com.gestorproductos.inventario.exception.InvalidRequestException;
+import com.gestorproductos.inventario.service.ExportadorSnapshots;
+import com.gestorproductos.inventario.service.MetricasInventario;
+
+/**
+ * Snapshots del catálogo para analítica. Los archivos quedan en el directorio local
+ * configurado; la API solo los genera a pedido y lista sus manifiestos.
+ */
+@RestController
+@RequestMapping("/api/snapshots")
+public class SnapshotController {
+
+    private final ExportadorSnapshots exportadorSnapshots;
+    private final MetricasInventario metricasInventario;
+
+    public SnapshotController(ExportadorSnapshots exportadorSnapshots, MetricasInventario metricasInventario) {
+        this.exportadorSnapshots = exportadorSnapshots;
+        this.metricasInventario = metricasInventario;
+    }
+
+    @PostMapping
+    public ResponseEntity<ManifiestoSnapshot> exportarSnapshot(
+            @RequestParam(defaultValue = ManifiestoSnapshot.TIPO_INCREMENTAL) String tipo) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(exportadorSnapshots.exportar(tipo));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ManifiestoSnapshot>> listarSnapshots() {
+        return ResponseEntity.ok(exportadorSnapshots.listar());
+    }
+
+    @ExceptionHandler({InvalidRequestException.class})
+    public ResponseEntity<String> manejarSolicitudInvalida(InvalidRequestException ex) {
+        metricasInventario.registrarRechazo(ex);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler({Exception.class})
+    public ResponseEntity<String> manejarErrorGeneral(Exception ex) {
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error interno del servidor: " + ex.getMessage());
+    }
+}
@@ -0,0 +1,114 @@
+package com.gestorproductos.inventario.dto;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.gestorproductos.inventario.exception.InvalidRequestException;
+
+/**
+ * Conjunto de campos de producto a serializar ({@code ?fields=}) y su escritura directa sobre
+ * un {@link JsonGenerator}. Cada campo tiene su nombre ya codificado y su propio escritor, así
+ * que serializar una vista no introspecciona clases ni busca serializadores por petición.
+ * Sin selección se escriben todos los campos, en el mismo orden que la entidad.
+ */
+public final class CamposProducto {
+
+    public static final CamposProducto TODOS = new CamposProducto(List.of(Campo.values()));
+
+    private final Campo[] campos;
+
+    private CamposProducto(List<Campo> campos) {
+        this.campos = campos.toArray(new Campo[0]);
+    }
+
+    /**
+     * Interpreta una lista separada por comas; {@code null} o vacía equivale a todos los campos.
+     */
+    public static CamposProducto seleccionar(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return TODOS;
+        }
+        Set<Campo> seleccionados = EnumSet.noneOf(Campo.class);
+        for (String nombre : fields.split(",")) {
+            String limpio = nombre.trim();
+            if (!limpio.isEmpty()) {
+                seleccionados.add(Campo.desde(limpio));
+            }
+        }
+        if (seleccionados.isEmpty()) {
+            return TODOS;
+        }
+        return new CamposProducto(new ArrayList<>(seleccionados));
+    }
+
+    public void escribir(JsonGenerator generador, ProductoVista producto) throws IOException {
+        generador.writeStartObject();
+        for (Campo campo : campos) {
+            generador.writeFieldName(campo.nombre);
+            campo.escritor.escribir(generador, producto);
+        }
+        generador.writeEndObject();
+    }
+
+    public void escribirLista(JsonGenerator generador, List<ProductoVista> productos) throws IOException {
+        generador.writeStartArray();
+        for (ProductoVista producto : productos) {
+            escribir(generador, producto);
+        }
+        generador.writeEndArray();
+    }
+
+    @FunctionalInterface
+    private interface Escritor {
+        void escribir(JsonGenerator generador, ProductoVista producto) throws IOException;
+    }
+
+    private enum Campo {
+
+        ID_PRODUCTO("idProducto", (g, p) -> escribirEntero(g, p.idProducto())),
+        NOMBRE_PRODUCTO("nombreProducto", (g, p) -> g.writeString(p.nombreProducto())),
+        DESCRIPCION("descripcion", (g, p) -> g.writeString(p.descripcion())),
+        PRECIO_VENTA("precioVenta", (g, p) -> g.writeNumber(p.precioVenta())),
+        COSTO_COMPRA("costoCompra", (g, p) -> g.writeNumber(p.costoCompra())),
+        STOCK_ACTUAL("stockActual", (g, p) -> g.writeNumber(p.stockActual())),
+        ESTADO_PRODUCTO("estadoProducto",
+                (g, p) -> g.writeString(p.estadoProducto() != null ? p.estadoProducto().getEtiqueta() : null)),
+        VERSION("version", (g, p) -> {
+            if (p.version() != null) {
+                g.writeNumber(p.version());
+            } else {
+                g.writeNull();
+            }
+        });
+
+        private final SerializedString nombre;
+        private final Escritor escritor;
+
+        Campo(String nombre, Escritor escritor) {
+            this.nombre = new SerializedString(nombre);
+            this.escritor = escritor;
+        }
+
+        static Campo desde(String nombre) {
+            for (Campo campo : values()) {
+                if (campo.nombre.getValue().equals(nombre)) {
+                    return campo;
+                }
+            }
+            throw new InvalidRequestException("fields", "campo desconocido: " + nombre);
+        }
+
+        private static void escribirEntero(JsonGenerator generador, Integer valor) throws IOException {
+            if (valor != null) {
+                generador.writeNumber(valor);
+            } else {
+                generador.writeNull();
+            }
+        }
+    }
+}
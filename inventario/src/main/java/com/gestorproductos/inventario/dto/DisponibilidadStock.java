@@ -0,0 +1,8 @@
+package com.gestorproductos.inventario.dto;
+
+/**
+ * Stock de un producto junto con lo retenido por reservas activas; {@code disponible} es lo
+ * que todavía puede venderse o reservarse.
+ */
+public record DisponibilidadStock(Integer idProducto, int stockActual, int reservado, int disponible) {
+}
@@ -0,0 +1,4 @@
+package com.gestorproductos.inventario.dto;
+
+public record EstadisticasCache(long aciertos, long fallos, long desalojos, double tasaAciertos, long tamano) {
+}
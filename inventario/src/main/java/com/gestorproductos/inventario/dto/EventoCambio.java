@@ -0,0 +1,19 @@
+package com.gestorproductos.inventario.dto;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.gestorproductos.inventario.model.EventoOutbox;
+
+/**
+ * Cambio publicado desde el outbox. {@code campos} es un objeto JSON con los campos que
+ * cambiaron y su valor nuevo (todos los campos en un alta, ninguno en una baja).
+ */
+public record EventoCambio(long posicion, String entidad, Integer id, Long version, String operacion,
+        @JsonRawValue String campos, Instant registradoEn) {
+
+    public static EventoCambio desde(EventoOutbox evento) {
+        return new EventoCambio(evento.getPosicion(), evento.getEntidad(), evento.getIdEntidad(),
+                evento.getVersion(), evento.getOperacion(), evento.getCampos(), evento.getRegistradoEn());
+    }
+}
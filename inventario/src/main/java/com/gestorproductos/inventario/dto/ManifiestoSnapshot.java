@@ -0,0 +1,20 @@
+package com.gestorproductos.inventario.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Descripción de un snapshot del catálogo. Uno {@code completo} contiene todas las filas; uno
+ * {@code incremental} solo las que cambiaron entre las posiciones del outbox
+ * {@code posicionDesde} (exclusive) y {@code posicionHasta} (inclusive), y se aplica sobre el
+ * snapshot {@code base} quedándose, por id, con la fila de mayor {@code version}.
+ */
+public record ManifiestoSnapshot(long numero, String tipo, Long base, long posicionDesde, long posicionHasta,
+        Instant creadoEn, List<Archivo> archivos) {
+
+    public static final String TIPO_COMPLETO = "completo";
+    public static final String TIPO_INCREMENTAL = "incremental";
+
+    public record Archivo(String nombre, String tabla, long filas, long bytes) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.gestorproductos.inventario.dto;
+
+import java.math.BigDecimal;
+
+public record MovimientoStock(Integer idProducto, Tipo tipo, Integer cantidad, BigDecimal costoCompra) {
+
+    public enum Tipo {
+        AUMENTAR,
+        DISMINUIR
+    }
+}
@@ -0,0 +1,10 @@
+package com.gestorproductos.inventario.dto;
+
+import java.util.List;
+
+/**
+ * Página de cambios publicados. {@code siguiente} es el offset con el que pedir la próxima
+ * página; si no hubo cambios nuevos es el mismo offset recibido.
+ */
+public record PaginaCambios(List<EventoCambio> cambios, long siguiente) {
+}
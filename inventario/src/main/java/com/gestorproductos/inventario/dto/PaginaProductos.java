@@ -0,0 +1,8 @@
+package com.gestorproductos.inventario.dto;
+
+import java.util.List;
+
+import com.gestorproductos.inventario.model.Producto;
+
+public record PaginaProductos(List<Producto> productos, Integer siguiente) {
+}
@@ -0,0 +1,6 @@
+package com.gestorproductos.inventario.dto;
+
+import java.util.List;
+
+public record PaginaVistas(List<ProductoVista> productos, Integer siguiente) {
+}
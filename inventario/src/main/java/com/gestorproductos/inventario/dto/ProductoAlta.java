@@ -0,0 +1,30 @@
+package com.gestorproductos.inventario.dto;
+
+import java.math.BigDecimal;
+
+import com.gestorproductos.inventario.exception.InvalidRequestException;
+import com.gestorproductos.inventario.model.EstadoProducto;
+import com.gestorproductos.inventario.model.Producto;
+
+/**
+ * Cuerpo de un alta de producto, por la API o por la importación NDJSON. El stock es un
+ * {@link Integer} para distinguir un campo omitido de un cero; el id y la versión los asigna
+ * la base de datos.
+ */
+public record ProductoAlta(String nombreProducto, String descripcion, BigDecimal precioVenta,
+        BigDecimal costoCompra, Integer stockActual, EstadoProducto estadoProducto) {
+
+    public Producto aProducto() {
+        if (stockActual == null) {
+            throw new InvalidRequestException("stockActual", "es obligatorio");
+        }
+        Producto producto = new Producto();
+        producto.setNombreProducto(nombreProducto);
+        producto.setDescripcion(descripcion);
+        producto.setPrecioVenta(precioVenta);
+        producto.setCostoCompra(costoCompra);
+        producto.setStockActual(stockActual);
+        producto.setEstadoProducto(estadoProducto);
+        return producto;
+    }
+}
@@ -0,0 +1,21 @@
+package com.gestorproductos.inventario.dto;
+
+import java.math.BigDecimal;
+
+import com.gestorproductos.inventario.model.EstadoProducto;
+import com.gestorproductos.inventario.model.Producto;
+
+/**
+ * Proyección de solo lectura de un producto para los listados. Spring Data la arma con una
+ * expresión constructora, sin entidades administradas ni instantáneas para el dirty checking.
+ */
+public record ProductoVista(Integer idProducto, String nombreProducto, String descripcion,
+        BigDecimal precioVenta, BigDecimal costoCompra, int stockActual, EstadoProducto estadoProducto,
+        Long version) {
+
+    public static ProductoVista desde(Producto producto) {
+        return new ProductoVista(producto.getIdProducto(), producto.getNombreProducto(),
+                producto.getDescripcion(), producto.getPrecioVenta(), producto.getCostoCompra(),
+                producto.getStockActual(), producto.getEstadoProducto(), producto.getVersion());
+    }
+}
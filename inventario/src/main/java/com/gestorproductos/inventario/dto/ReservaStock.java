@@ -0,0 +1,7 @@
+package com.gestorproductos.inventario.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ReservaStock(UUID idReserva, Integer idProducto, int cantidad, Instant venceEn) {
+}
@@ -0,0 +1,6 @@
+package com.gestorproductos.inventario.dto;
+
+import com.gestorproductos.inventario.model.Producto;
+
+public record ResultadoBusqueda(Producto producto, double relevancia) {
+}
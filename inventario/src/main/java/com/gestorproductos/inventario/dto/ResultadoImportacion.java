@@ -0,0 +1,14 @@
+package com.gestorproductos.inventario.dto;
+
+import java.util.List;
+
+/**
+ * Resumen de una importación masiva. {@code errores} lista las filas rechazadas (número de
+ * fila de datos, empezando en 1) hasta un máximo; {@code rechazadas} las cuenta todas.
+ */
+public record ResultadoImportacion(long procesadas, long importadas, long rechazadas,
+        List<ErrorFila> errores) {
+
+    public record ErrorFila(long fila, String mensaje) {
+    }
+}
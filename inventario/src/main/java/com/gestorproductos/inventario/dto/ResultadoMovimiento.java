@@ -0,0 +1,15 @@
+package com.gestorproductos.inventario.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ResultadoMovimiento(int indice, Integer idProducto, boolean exito, Integer stockActual, String error) {
+
+    public static ResultadoMovimiento exitoso(int indice, Integer idProducto, Integer stockActual) {
+        return new ResultadoMovimiento(indice, idProducto, true, stockActual, null);
+    }
+
+    public static ResultadoMovimiento fallido(int indice, Integer idProducto, String error) {
+        return new ResultadoMovimiento(indice, idProducto, false, null, error);
+    }
+}
@@ -0,0 +1,13 @@
+package com.gestorproductos.inventario.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Movimientos de stock de un período (hora o día UTC que empieza en {@code periodo}).
+ * {@code costoPromedioEntrada} es el costo unitario de las entradas ponderado por unidades, o
+ * {@code null} si en el período no hubo entradas con costo.
+ */
+public record ResumenMovimientos(Instant periodo, long unidadesEntrada, long unidadesSalida,
+        BigDecimal costoPromedioEntrada, long movimientos) {
+}
@@ -0,0 +1,15 @@
+package com.gestorproductos.inventario.dto;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Valor del inventario a costo ({@code stockActual × costoCompra}) y a precio de venta, con
+ * productos y unidades desglosados por etiqueta de estado.
+ */
+public record ValoracionInventario(long productos, long unidades, BigDecimal valorCosto, BigDecimal valorVenta,
+        Map<String, PorEstado> porEstado) {
+
+    public record PorEstado(long productos, long unidades) {
+    }
+}
@@ -0,0 +1,7 @@
+package com.gestorproductos.inventario.dto;
+
+/**
+ * Columnas mínimas para validar una caché condicional sin cargar la entidad.
+ */
+public record VersionProducto(Long version, int stockActual) {
+}
@@ -0,0 +1,14 @@
+package com.gestorproductos.inventario.event;
+
+import com.gestorproductos.inventario.model.CategoriaProducto;
+
+/**
+ * Cambio confirmado sobre una categoría. {@code anterior} es nulo al crear y {@code actual}
+ * es nulo al eliminar.
+ */
+public record CategoriaModificadaEvent(CategoriaProducto anterior, CategoriaProducto actual) {
+
+    public Integer idCategoria() {
+        return actual != null ? actual.getIdCategoria() : anterior.getIdCategoria();
+    }
+}
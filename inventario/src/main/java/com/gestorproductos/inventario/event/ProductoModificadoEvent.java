@@ -0,0 +1,14 @@
+package com.gestorproductos.inventario.event;
+
+import com.gestorproductos.inventario.model.Producto;
+
+/**
+ * Cambio confirmado sobre un producto. Ambas instantáneas son copias desacopladas del
+ * contexto de persistencia; {@code anterior} es nulo cuando el producto se acaba de crear.
+ */
+public record ProductoModificadoEvent(Producto anterior, Producto actual) {
+
+    public Integer idProducto() {
+        return actual.getIdProducto();
+    }
+}
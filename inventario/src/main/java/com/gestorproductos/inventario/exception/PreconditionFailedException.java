@@ -0,0 +1,33 @@
+package com.gestorproductos.inventario.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    private final String resourceType;
+    private final String identifier;
+    private final String versionActual;
+
+    public PreconditionFailedException(String resourceType, String identifier, String versionActual) {
+        super();
+        this.resourceType = resourceType;
+        this.identifier = identifier;
+        this.versionActual = versionActual;
+    }
+
+    @Override
+    public String getMessage() {
+        return String.format("El recurso '%s' con identificador '%s' fue modificado; versión actual: %s",
+                resourceType, identifier, versionActual);
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public String getVersionActual() {
+        return versionActual;
+    }
+}
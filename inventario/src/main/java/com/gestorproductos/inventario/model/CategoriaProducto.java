@@ -1,5 +1,9 @@
 package com.gestorproductos.inventario.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -8,8 +12,12 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import jakarta.persistence.Version;
 
+// Las categorías casi no cambian: una lectura que cruce una edición puede ver brevemente la
+// versión anterior, y @Version rechaza cualquier escritura hecha sobre ella.
 @Entity
 @Table(name = "categorias_producto")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "categorias")
 public class CategoriaProducto {
 
     @Id
@@ -33,6 +41,13 @@ public class CategoriaProducto {
         this.idCategoria = idCategoria;
     }
 
+    public CategoriaProducto(CategoriaProducto otra) {
+        this.idCategoria = otra.idCategoria;
+        this.nombreCategoria = otra.nombreCategoria;
+        this.descripcion = otra.descripcion;
+        this.version = otra.version;
+    }
+
     public Integer getIdCategoria() {
         return idCategoria;
     }
@@ -0,0 +1,65 @@
+package com.gestorproductos.inventario.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.gestorproductos.inventario.exception.InvalidProductStateException;
+
+/**
+ * Estado de un producto. En la API se expone con su etiqueta ("Activo", "Inactivo",
+ * "Agotado") y en la base de datos se persiste como un código SMALLINT.
+ */
+public enum EstadoProducto {
+
+    ACTIVO((short) 0, "Activo"),
+    INACTIVO((short) 1, "Inactivo"),
+    AGOTADO((short) 2, "Agotado");
+
+    private static final EstadoProducto[] POR_CODIGO = { ACTIVO, INACTIVO, AGOTADO };
+
+    private final short codigo;
+    private final String etiqueta;
+
+    EstadoProducto(short codigo, String etiqueta) {
+        this.codigo = codigo;
+        this.etiqueta = etiqueta;
+    }
+
+    public short getCodigo() {
+        return codigo;
+    }
+
+    @JsonValue
+    public String getEtiqueta() {
+        return etiqueta;
+    }
+
+    public static EstadoProducto desdeCodigo(short codigo) {
+        if (codigo < 0 || codigo >= POR_CODIGO.length) {
+            throw new IllegalArgumentException("Código de estado de producto desconocido: " + codigo);
+        }
+        return POR_CODIGO[codigo];
+    }
+
+    /**
+     * Convierte la etiqueta recibida en la API. Devuelve {@code null} para un valor vacío, de
+     * modo que cada operación decida si el estado es obligatorio o tiene valor por defecto.
+     */
+    @JsonCreator
+    public static EstadoProducto desde(String valor) {
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        String limpio = valor.trim();
+        for (EstadoProducto estado : POR_CODIGO) {
+            if (estado.etiqueta.equals(limpio)) {
+                return estado;
+            }
+        }
+        throw new InvalidProductStateException("Los estados válidos son: Activo, Inactivo, Agotado");
+    }
+
+    @Override
+    public String toString() {
+        return etiqueta;
+    }
+}
@@ -0,0 +1,18 @@
+package com.gestorproductos.inventario.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter(autoApply = true)
+public class EstadoProductoConverter implements AttributeConverter<EstadoProducto, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(EstadoProducto estado) {
+        return estado != null ? estado.getCodigo() : null;
+    }
+
+    @Override
+    public EstadoProducto convertToEntityAttribute(Short codigo) {
+        return codigo != null ? EstadoProducto.desdeCodigo(codigo) : null;
+    }
+}
@@ -0,0 +1,109 @@
+package com.gestorproductos.inventario.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "outbox_eventos")
+public class EventoOutbox {
+
+    public static final String ENTIDAD_PRODUCTO = "producto";
+    public static final String ENTIDAD_CATEGORIA = "categoria";
+
+    public static final String OPERACION_ALTA = "alta";
+    public static final String OPERACION_CAMBIO = "cambio";
+    public static final String OPERACION_BAJA = "baja";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "entidad", length = 20, nullable = false)
+    private String entidad;
+
+    @Column(name = "id_entidad", nullable = false)
+    private Integer idEntidad;
+
+    @Column(name = "version")
+    private Long version;
+
+    @Column(name = "operacion", length = 10, nullable = false)
+    private String operacion;
+
+    @Column(name = "campos", columnDefinition = "TEXT", nullable = false)
+    private String campos;
+
+    @Column(name = "registrado_en", nullable = false)
+    private Instant registradoEn;
+
+    @Column(name = "posicion", unique = true)
+    private Long posicion;
+
+    @Column(name = "publicado_en")
+    private Instant publicadoEn;
+
+    public EventoOutbox() {
+    }
+
+    public EventoOutbox(String entidad, Integer idEntidad, Long version, String operacion, String campos) {
+        this.entidad = entidad;
+        this.idEntidad = idEntidad;
+        this.version = version;
+        this.operacion = operacion;
+        this.campos = campos;
+        this.registradoEn = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEntidad() {
+        return entidad;
+    }
+
+    public Integer getIdEntidad() {
+        return idEntidad;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public String getOperacion() {
+        return operacion;
+    }
+
+    public String getCampos() {
+        return campos;
+    }
+
+    public Instant getRegistradoEn() {
+        return registradoEn;
+    }
+
+    public Long getPosicion() {
+        return posicion;
+    }
+
+    public Instant getPublicadoEn() {
+        return publicadoEn;
+    }
+
+    public void marcarPublicado(long posicion, Instant publicadoEn) {
+        this.posicion = posicion;
+        this.publicadoEn = publicadoEn;
+    }
+
+    @Override
+    public String toString() {
+        return "EventoOutbox [id=" + id + ", entidad=" + entidad + ", idEntidad=" + idEntidad + ", version=" + version
+                + ", operacion=" + operacion + ", posicion=" + posicion + "]";
+    }
+}
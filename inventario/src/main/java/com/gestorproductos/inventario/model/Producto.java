@@ -2,20 +2,35 @@ package com.gestorproductos.inventario.model;
 
 import java.math.BigDecimal;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.persistence.Version;
 
+// Caché de segundo nivel read-write: Hibernate bloquea la entrada mientras dura la
+// transacción que la modifica. Las escrituras por JDBC la desalojan con CacheSegundoNivel.
 @Entity
 @Table(name = "productos")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "productos")
 public class Producto {
 
+    // Secuencia con bloques de 50 ids (optimizador pooled-lo): las altas masivas se pueden
+    // insertar en lotes JDBC, cosa que IDENTITY impide.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productos_seq")
+    @SequenceGenerator(name = "productos_seq", sequenceName = "productos_seq", allocationSize = 50)
     @Column(name = "id_producto")
     private Integer idProducto;
 
@@ -32,14 +47,21 @@ public class Producto {
     private BigDecimal costoCompra;
 
     @Column(name = "stock_actual", nullable = false)
-    private Integer stockActual;
+    private int stockActual;
 
-    @Column(name = "estado_producto", length = 20, nullable = false)
-    private String estadoProducto;
+    @Column(name = "estado_producto", nullable = false)
+    private EstadoProducto estadoProducto;
 
     @Version
     private Long version;
 
+    // Secuencia del libro de stock del último movimiento reflejado en esta instantánea. Las
+    // disminuciones del libro no incrementan la versión hasta el volcado, así que ordena las
+    // instantáneas de una misma versión. No se persiste ni se expone.
+    @Transient
+    @JsonIgnore
+    private long secuenciaLibro;
+
     public Producto() {
     }
 
@@ -47,6 +69,18 @@ public class Producto {
         this.idProducto = idProducto;
     }
 
+    public Producto(Producto otro) {
+        this.idProducto = otro.idProducto;
+        this.nombreProducto = otro.nombreProducto;
+        this.descripcion = otro.descripcion;
+        this.precioVenta = otro.precioVenta;
+        this.costoCompra = otro.costoCompra;
+        this.stockActual = otro.stockActual;
+        this.estadoProducto = otro.estadoProducto;
+        this.version = otro.version;
+        this.secuenciaLibro = otro.secuenciaLibro;
+    }
+
     public Integer getIdProducto() {
         return idProducto;
     }
@@ -87,19 +121,19 @@ public class Producto {
         this.costoCompra = costoCompra;
     }
 
-    public Integer getStockActual() {
+    public int getStockActual() {
         return stockActual;
     }
 
-    public void setStockActual(Integer stockActual) {
+    public void setStockActual(int stockActual) {
         this.stockActual = stockActual;
     }
 
-    public String getEstadoProducto() {
+    public EstadoProducto getEstadoProducto() {
         return estadoProducto;
     }
 
-    public void setEstadoProducto(String estadoProducto) {
+    public void setEstadoProducto(EstadoProducto estadoProducto) {
         this.estadoProducto = estadoProducto;
     }
 
@@ -111,6 +145,14 @@ public class Producto {
         this.version = version;
     }
 
+    public long getSecuenciaLibro() {
+        return secuenciaLibro;
+    }
+
+    public void setSecuenciaLibro(long secuenciaLibro) {
+        this.secuenciaLibro = secuenciaLibro;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -2,14 +2,20 @@ package com.gestorproductos.inventario.repository;
 
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.gestorproductos.inventario.model.CategoriaProducto;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface CategoriaProductoRepository extends JpaRepository<CategoriaProducto, Integer> {
     
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "consultas-categorias") })
     Optional<CategoriaProducto> findByNombreCategoria(String nombreCategoria);
     
     boolean existsByNombreCategoria(String nombreCategoria);
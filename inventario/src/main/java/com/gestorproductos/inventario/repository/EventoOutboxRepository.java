@@ -0,0 +1,32 @@
+package com.gestorproductos.inventario.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import com.gestorproductos.inventario.model.EventoOutbox;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    // SKIP LOCKED: un segundo relay no espera a las filas que otro ya está publicando.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<EventoOutbox> findByPosicionIsNullOrderByIdAsc(Limit limit);
+
+    List<EventoOutbox> findByPosicionGreaterThanOrderByPosicionAsc(Long posicion, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM EventoOutbox e WHERE e.posicion IS NOT NULL AND e.publicadoEn < :limite")
+    int deletePublicadosAntesDe(Instant limite);
+}
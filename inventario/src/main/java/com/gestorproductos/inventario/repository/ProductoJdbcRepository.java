@@ -0,0 +1,123 @@
+package com.gestorproductos.inventario.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.gestorproductos.inventario.model.EstadoProducto;
+import com.gestorproductos.inventario.model.EventoOutbox;
+import com.gestorproductos.inventario.model.Producto;
+
+@Repository
+public class ProductoJdbcRepository {
+
+    public static final RowMapper<Producto> PRODUCTO_ROW_MAPPER = ProductoJdbcRepository::mapearProducto;
+
+    private static final String SQL_RECORRER = "SELECT id_producto, nombre_producto, descripcion, precio_venta, "
+            + "costo_compra, stock_actual, estado_producto, version FROM productos ORDER BY id_producto";
+
+    // La CTE bloquea la fila y lee el estado previo ya actualizado por cualquier escritura
+    // concurrente; el UPDATE condicional y el RETURNING completan el ciclo en un solo viaje.
+    private static final String SQL_DISMINUIR_STOCK = "WITH previo AS ("
+            + "SELECT id_producto, estado_producto FROM productos WHERE id_producto = ? FOR UPDATE) "
+            + "UPDATE productos p SET "
+            + "stock_actual = p.stock_actual - ?, "
+            + "estado_producto = CASE WHEN p.stock_actual - ? = 0 THEN " + EstadoProducto.AGOTADO.getCodigo()
+            + " ELSE p.estado_producto END, "
+            + "version = p.version + 1 "
+            + "FROM previo WHERE p.id_producto = previo.id_producto AND p.stock_actual - ? >= ? "
+            + "RETURNING p.id_producto, p.nombre_producto, p.descripcion, p.precio_venta, p.costo_compra, "
+            + "p.stock_actual, p.estado_producto, p.version, previo.estado_producto AS estado_anterior";
+
+    // Productos con algún cambio publicado en el outbox entre dos posiciones
+    private static final String SQL_RECORRER_MODIFICADOS = "SELECT id_producto, nombre_producto, descripcion, "
+            + "precio_venta, costo_compra, stock_actual, estado_producto, version FROM productos "
+            + "WHERE id_producto IN (SELECT id_entidad FROM outbox_eventos WHERE entidad = '"
+            + EventoOutbox.ENTIDAD_PRODUCTO + "' AND posicion > ? AND posicion <= ?) ORDER BY id_producto";
+
+    // Toda escritura confirmada incrementa la versión de su fila, y las altas y bajas cambian
+    // el conteo y el id máximo: la marca cambia con cualquier cambio visible en los listados.
+    private static final String SQL_MARCA_CATALOGO = "SELECT COUNT(*) || '-' || COALESCE(MAX(id_producto), 0) "
+            + "|| '-' || COALESCE(SUM(version), 0) FROM productos";
+
+    private static final String SQL_STOCK_ACTUAL = "SELECT stock_actual FROM productos WHERE id_producto = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate cursorTemplate;
+
+    public ProductoJdbcRepository(JdbcTemplate jdbcTemplate,
+            @Value("${inventario.productos.streaming.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cursorTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.cursorTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Recorre todos los productos con un cursor de solo avance. Debe llamarse dentro de una
+     * transacción para que el driver de PostgreSQL respete el fetch size en lugar de cargar
+     * el resultado completo.
+     */
+    public void recorrerTodos(Consumer<Producto> consumidor) {
+        cursorTemplate.query(SQL_RECORRER, rs -> {
+            consumidor.accept(mapearProducto(rs, rs.getRow()));
+        });
+    }
+
+    /**
+     * Como {@link #recorrerTodos}, pero solo los productos con eventos del outbox en posiciones
+     * mayores que {@code desde} y hasta {@code hasta} inclusive.
+     */
+    public void recorrerModificados(long desde, long hasta, Consumer<Producto> consumidor) {
+        cursorTemplate.query(SQL_RECORRER_MODIFICADOS, rs -> {
+            consumidor.accept(mapearProducto(rs, rs.getRow()));
+        }, desde, hasta);
+    }
+
+    /**
+     * Disminuye el stock con un único UPDATE condicional que exige dejar al menos
+     * {@code reservado} unidades, incrementa la versión y pasa a agotado al llegar a cero.
+     * Devuelve la fila resultante, o vacío si el producto no existe o no tiene stock suficiente.
+     */
+    public Optional<StockDisminuido> disminuirStock(Integer idProducto, int cantidad, int reservado) {
+        List<StockDisminuido> filas = jdbcTemplate.query(SQL_DISMINUIR_STOCK,
+                (rs, rowNum) -> new StockDisminuido(mapearProducto(rs, rowNum),
+                        EstadoProducto.desdeCodigo(rs.getShort("estado_anterior"))),
+                idProducto, cantidad, cantidad, cantidad, reservado);
+        return filas.isEmpty() ? Optional.empty() : Optional.of(filas.get(0));
+    }
+
+    /**
+     * Marca del catálogo derivada del estado confirmado de la tabla, igual en todas las
+     * instancias y estable ante reinicios.
+     */
+    public String obtenerMarcaCatalogo() {
+        return jdbcTemplate.queryForObject(SQL_MARCA_CATALOGO, String.class);
+    }
+
+    public Optional<Integer> obtenerStock(Integer idProducto) {
+        List<Integer> stock = jdbcTemplate.queryForList(SQL_STOCK_ACTUAL, Integer.class, idProducto);
+        return stock.isEmpty() ? Optional.empty() : Optional.of(stock.get(0));
+    }
+
+    public record StockDisminuido(Producto producto, EstadoProducto estadoAnterior) {
+    }
+
+    private static Producto mapearProducto(ResultSet rs, int rowNum) throws SQLException {
+        Producto producto = new Producto(rs.getInt("id_producto"));
+        producto.setNombreProducto(rs.getString("nombre_producto"));
+        producto.setDescripcion(rs.getString("descripcion"));
+        producto.setPrecioVenta(rs.getBigDecimal("precio_venta"));
+        producto.setCostoCompra(rs.getBigDecimal("costo_compra"));
+        producto.setStockActual(rs.getInt("stock_actual"));
+        producto.setEstadoProducto(EstadoProducto.desdeCodigo(rs.getShort("estado_producto")));
+        producto.setVersion(rs.getLong("version"));
+        return producto;
+    }
+}
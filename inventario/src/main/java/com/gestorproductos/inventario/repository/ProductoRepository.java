@@ -3,19 +3,36 @@ package com.gestorproductos.inventario.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import com.gestorproductos.inventario.model.EstadoProducto;
 import com.gestorproductos.inventario.model.Producto;
 
 @Repository
 public interface ProductoRepository extends JpaRepository<Producto, Integer> {
     
-    List<Producto> findByEstadoProducto(String estadoProducto);
+    // Sin caché de consultas: el stock cambia con cada venta y cada cambio invalidaría la
+    // región, así que casi nunca acertaría.
+    List<Producto> findByEstadoProducto(EstadoProducto estadoProducto);
     
     Optional<Producto> findByNombreProducto(String nombreProducto);
     
-    List<Producto> findByStockActualLessThan(Integer stock);
+    List<Producto> findByStockActualLessThan(int stock);
     
-    List<Producto> findByEstadoProductoAndStockActualGreaterThan(String estadoProducto, Integer stock);
+    List<Producto> findByEstadoProductoAndStockActualGreaterThan(EstadoProducto estadoProducto, int stock);
+    
+    List<Producto> findByIdProductoGreaterThanOrderByIdProductoAsc(Integer idProducto, Limit limit);
+
+    // Variantes con proyección dinámica: con un record se consulta solo sus columnas y no se
+    // hidratan entidades en el contexto de persistencia.
+
+    <T> List<T> findAllByOrderByIdProductoAsc(Class<T> tipo);
+
+    <T> List<T> findByEstadoProductoOrderByIdProductoAsc(EstadoProducto estadoProducto, Class<T> tipo);
+
+    <T> List<T> findByIdProductoGreaterThanOrderByIdProductoAsc(Integer idProducto, Limit limit, Class<T> tipo);
+
+    <T> Optional<T> findByIdProducto(Integer idProducto, Class<T> tipo);
 } 
\ No newline at end of file
@@ -0,0 +1,319 @@
+package com.gestorproductos.inventario.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gestorproductos.inventario.dto.ValoracionInventario;
+import com.gestorproductos.inventario.event.ProductoModificadoEvent;
+import com.gestorproductos.inventario.model.EstadoProducto;
+import com.gestorproductos.inventario.model.Producto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Totales del inventario mantenidos en memoria con la diferencia entre la instantánea anterior
+ * y la actual de cada cambio confirmado.
+ *
+ * <p>La reconciliación periódica corrige la deriva contra la base: pausa los commits nuevos,
+ * espera a los que están en curso (cada transacción cuenta una vez) y fija ahí su instantánea
+ * REPEATABLE READ.
+ */
+@Component
+public class AgregadosInventario {
+
+    private static final Logger log = LoggerFactory.getLogger(AgregadosInventario.class);
+    private static final EstadoProducto[] ESTADOS = EstadoProducto.values();
+
+    private static final String SQL_TOTALES = "SELECT estado_producto, COUNT(*), COALESCE(SUM(stock_actual), 0), "
+            + "COALESCE(SUM(stock_actual * costo_compra), 0), COALESCE(SUM(stock_actual * precio_venta), 0) "
+            + "FROM productos GROUP BY estado_producto";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StockLedger stockLedger;
+    private final Counter desvios;
+    private final TransactionTemplate lectura;
+    private final ReentrantLock bloqueo = new ReentrantLock();
+    private final Condition sinCommitsEnCurso = bloqueo.newCondition();
+    private final Condition reanudados = bloqueo.newCondition();
+
+    // Protegidos por bloqueo.
+    private Totales totales = new Totales();
+    private int commitsEnCurso;
+    private boolean commitsEnPausa;
+
+    public AgregadosInventario(JdbcTemplate jdbcTemplate, StockLedger stockLedger,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stockLedger = stockLedger;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.lectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.desvios = Counter.builder("inventario.valoracion.desvios")
+                .description("Reconciliaciones que encontraron los totales en memoria desviados de la base de datos")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void cargar() {
+        Totales calculados = calcular();
+        bloqueo.lock();
+        try {
+            totales = calculados;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    public ValoracionInventario valoracion() {
+        bloqueo.lock();
+        try {
+            Map<String, ValoracionInventario.PorEstado> porEstado = new LinkedHashMap<>();
+            for (EstadoProducto estado : ESTADOS) {
+                int i = estado.ordinal();
+                porEstado.put(estado.getEtiqueta(),
+                        new ValoracionInventario.PorEstado(totales.productos[i], totales.unidades[i]));
+            }
+            return new ValoracionInventario(totales.productosTotales(), totales.unidadesTotales(),
+                    totales.valorCosto, totales.valorVenta, porEstado);
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    public long unidades() {
+        bloqueo.lock();
+        try {
+            return totales.unidadesTotales();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    public long productos(EstadoProducto estado) {
+        bloqueo.lock();
+        try {
+            return totales.productos[estado.ordinal()];
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * Anota la transacción como commit en curso con su primer cambio y suma todos sus cambios
+     * al confirmarse. Sólo ese primer cambio espera a que termine una reconciliación: una
+     * transacción ya anotada nunca espera, porque la reconciliación la está esperando a ella.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    void alModificarProducto(ProductoModificadoEvent evento) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bloqueo.lock();
+            try {
+                sumar(evento);
+            } finally {
+                bloqueo.unlock();
+            }
+            return;
+        }
+        CommitEnCurso commit = (CommitEnCurso) TransactionSynchronizationManager.getResource(this);
+        if (commit == null) {
+            bloqueo.lock();
+            try {
+                while (commitsEnPausa) {
+                    reanudados.awaitUninterruptibly();
+                }
+                commitsEnCurso++;
+            } finally {
+                bloqueo.unlock();
+            }
+            commit = new CommitEnCurso();
+            TransactionSynchronizationManager.bindResource(this, commit);
+            TransactionSynchronizationManager.registerSynchronization(commit);
+        }
+        commit.eventos.add(evento);
+    }
+
+    @Scheduled(fixedDelayString = "${inventario.valoracion.intervalo-reconciliacion-ms:300000}",
+            initialDelayString = "${inventario.valoracion.intervalo-reconciliacion-ms:300000}")
+    public void reconciliar() {
+        // Los movimientos pendientes del libro de stock ya están en los totales pero aún no
+        // en la tabla; se vuelcan antes de comparar.
+        stockLedger.volcarPendientes();
+        lectura.executeWithoutResult(status -> {
+            Totales enMemoria;
+            bloqueo.lock();
+            try {
+                commitsEnPausa = true;
+                while (commitsEnCurso > 0) {
+                    sinCommitsEnCurso.awaitUninterruptibly();
+                }
+                // La primera sentencia fija la instantánea: ve exactamente los commits ya sumados.
+                jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+                enMemoria = totales.copia();
+            } finally {
+                commitsEnPausa = false;
+                reanudados.signalAll();
+                bloqueo.unlock();
+            }
+
+            Totales desvio = calcular().menos(enMemoria);
+            if (desvio.esNulo()) {
+                return;
+            }
+            bloqueo.lock();
+            try {
+                log.warn("Totales de inventario desviados de la base de datos en {}; en memoria {}", desvio, enMemoria);
+                desvios.increment();
+                totales.sumar(desvio);
+            } finally {
+                bloqueo.unlock();
+            }
+        });
+    }
+
+    // Con bloqueo tomado.
+    private void sumar(ProductoModificadoEvent evento) {
+        if (evento.anterior() != null) {
+            totales.sumar(evento.anterior(), -1);
+        }
+        totales.sumar(evento.actual(), 1);
+    }
+
+    private Totales calcular() {
+        Totales calculados = new Totales();
+        jdbcTemplate.query(SQL_TOTALES, rs -> {
+            int i = EstadoProducto.desdeCodigo(rs.getShort(1)).ordinal();
+            calculados.productos[i] = rs.getLong(2);
+            calculados.unidades[i] = rs.getLong(3);
+            calculados.valorCosto = calculados.valorCosto.add(rs.getBigDecimal(4));
+            calculados.valorVenta = calculados.valorVenta.add(rs.getBigDecimal(5));
+        });
+        calculados.valorCosto = calculados.valorCosto.setScale(2, RoundingMode.HALF_UP);
+        calculados.valorVenta = calculados.valorVenta.setScale(2, RoundingMode.HALF_UP);
+        return calculados;
+    }
+
+    /** Cambios de una transacción anotada en {@code commitsEnCurso}. */
+    private final class CommitEnCurso implements TransactionSynchronization {
+
+        private final List<ProductoModificadoEvent> eventos = new ArrayList<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AgregadosInventario.this);
+            bloqueo.lock();
+            try {
+                if (status == STATUS_COMMITTED) {
+                    eventos.forEach(AgregadosInventario.this::sumar);
+                }
+                if (--commitsEnCurso == 0) {
+                    sinCommitsEnCurso.signalAll();
+                }
+            } finally {
+                bloqueo.unlock();
+            }
+        }
+    }
+
+    private static final class Totales {
+
+        private final long[] productos = new long[ESTADOS.length];
+        private final long[] unidades = new long[ESTADOS.length];
+        private BigDecimal valorCosto = BigDecimal.ZERO.setScale(2);
+        private BigDecimal valorVenta = BigDecimal.ZERO.setScale(2);
+
+        private void sumar(Producto producto, int signo) {
+            int i = producto.getEstadoProducto().ordinal();
+            long stock = producto.getStockActual();
+            productos[i] += signo;
+            unidades[i] += signo * stock;
+            valorCosto = valorCosto.add(contribucion(producto.getCostoCompra(), signo * stock));
+            valorVenta = valorVenta.add(contribucion(producto.getPrecioVenta(), signo * stock));
+        }
+
+        // Los importes se redondean como los guarda la columna NUMERIC(10, 2).
+        private static BigDecimal contribucion(BigDecimal importe, long stock) {
+            if (importe == null || stock == 0) {
+                return BigDecimal.ZERO;
+            }
+            return importe.setScale(2, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(stock));
+        }
+
+        private long productosTotales() {
+            long total = 0;
+            for (long cantidad : productos) {
+                total += cantidad;
+            }
+            return total;
+        }
+
+        private long unidadesTotales() {
+            long total = 0;
+            for (long cantidad : unidades) {
+                total += cantidad;
+            }
+            return total;
+        }
+
+        private void sumar(Totales otros) {
+            for (int i = 0; i < productos.length; i++) {
+                productos[i] += otros.productos[i];
+                unidades[i] += otros.unidades[i];
+            }
+            valorCosto = valorCosto.add(otros.valorCosto);
+            valorVenta = valorVenta.add(otros.valorVenta);
+        }
+
+        private Totales copia() {
+            Totales copia = new Totales();
+            copia.sumar(this);
+            return copia;
+        }
+
+        private Totales menos(Totales otros) {
+            Totales diferencia = copia();
+            for (int i = 0; i < productos.length; i++) {
+                diferencia.productos[i] -= otros.productos[i];
+                diferencia.unidades[i] -= otros.unidades[i];
+            }
+            diferencia.valorCosto = diferencia.valorCosto.subtract(otros.valorCosto);
+            diferencia.valorVenta = diferencia.valorVenta.subtract(otros.valorVenta);
+            return diferencia;
+        }
+
+        private boolean esNulo() {
+            return Arrays.stream(productos).allMatch(cantidad -> cantidad == 0)
+                    && Arrays.stream(unidades).allMatch(cantidad -> cantidad == 0)
+                    && valorCosto.signum() == 0
+                    && valorVenta.signum() == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "{productos=" + productosTotales() + ", unidades=" + unidadesTotales() + ", valorCosto="
+                    + valorCosto + ", valorVenta=" + valorVenta + "}";
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.gestorproductos.inventario.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.gestorproductos.inventario.event.ProductoModificadoEvent;
+import com.gestorproductos.inventario.model.Producto;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Suscripciones SSE a alertas de stock bajo. Cada suscriptor recibe primero los productos que
+ * ya están por debajo de su umbral y luego solo los que cruzan el umbral: {@code stock-bajo}
+ * al caer por debajo y {@code repuesto} al volver a alcanzarlo.
+ *
+ * <p>Los suscriptores se agrupan por umbral en un mapa ordenado; un cambio de stock de
+ * {@code a} a {@code b} solo notifica a los umbrales del intervalo {@code (min, max]}.
+ *
+ * <p>Cada suscriptor tiene una cola acotada y un hilo virtual propio que le envía sus eventos
+ * en orden: quien confirma la escritura solo encola, y un cliente lento no retrasa a los
+ * demás. Si la cola de un suscriptor se llena, se lo da de baja y se cierra su conexión.
+ */
+@Component
+public class AlertasStockBajo {
+
+    static final String EVENTO_STOCK_BAJO = "stock-bajo";
+    static final String EVENTO_REPUESTO = "repuesto";
+
+    private final long timeoutMillis;
+    private final int capacidadCola;
+    private final ConcurrentSkipListMap<Integer, Set<Suscriptor>> suscriptores = new ConcurrentSkipListMap<>();
+
+    public AlertasStockBajo(@Value("${inventario.stock-bajo.sse.timeout:PT30M}") Duration timeout,
+            @Value("${inventario.stock-bajo.sse.capacidad-cola:256}") int capacidadCola) {
+        this.timeoutMillis = timeout.toMillis();
+        this.capacidadCola = capacidadCola;
+    }
+
+    /**
+     * {@code iniciales} da los productos que ya están bajo el umbral; se consulta desde el hilo
+     * del suscriptor después de registrarlo, para no perder cambios confirmados en el medio.
+     */
+    public SseEmitter suscribir(int umbral, Supplier<List<Producto>> iniciales) {
+        SseEmitter emisor = new SseEmitter(timeoutMillis);
+        Suscriptor suscriptor = new Suscriptor(umbral, emisor, iniciales);
+        emisor.onCompletion(suscriptor::descartar);
+        emisor.onTimeout(suscriptor::descartar);
+        emisor.onError(error -> suscriptor.descartar());
+
+        suscriptores.computeIfAbsent(umbral, u -> ConcurrentHashMap.newKeySet()).add(suscriptor);
+        suscriptor.hilo.start();
+        return emisor;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void alModificarProducto(ProductoModificadoEvent evento) {
+        Producto actual = evento.actual();
+        // Un producto nuevo se trata como si antes tuviera stock ilimitado.
+        int stockAnterior = evento.anterior() != null ? evento.anterior().getStockActual() : Integer.MAX_VALUE;
+        int stockActual = actual.getStockActual();
+        if (stockAnterior == stockActual || suscriptores.isEmpty()) {
+            return;
+        }
+        Alerta alerta = new Alerta(stockActual < stockAnterior ? EVENTO_STOCK_BAJO : EVENTO_REPUESTO, actual);
+        int desde = Math.min(stockAnterior, stockActual);
+        int hasta = Math.max(stockAnterior, stockActual);
+        suscriptores.subMap(desde, false, hasta, true)
+                .forEach((umbral, grupo) -> grupo.forEach(suscriptor -> suscriptor.encolar(alerta)));
+    }
+
+    @PreDestroy
+    void detener() {
+        suscriptores.values().forEach(grupo -> grupo.forEach(Suscriptor::descartar));
+    }
+
+    private void darDeBaja(Suscriptor suscriptor) {
+        suscriptores.computeIfPresent(suscriptor.umbral, (u, grupo) -> {
+            grupo.remove(suscriptor);
+            return grupo.isEmpty() ? null : grupo;
+        });
+    }
+
+    private record Alerta(String tipo, Producto producto) {
+    }
+
+    private final class Suscriptor {
+
+        private final int umbral;
+        private final SseEmitter emisor;
+        private final Supplier<List<Producto>> iniciales;
+        private final BlockingQueue<Alerta> pendientes = new ArrayBlockingQueue<>(capacidadCola);
+        private final Thread hilo;
+        private volatile boolean activo = true;
+
+        private Suscriptor(int umbral, SseEmitter emisor, Supplier<List<Producto>> iniciales) {
+            this.umbral = umbral;
+            this.emisor = emisor;
+            this.iniciales = iniciales;
+            this.hilo = Thread.ofVirtual().name("alertas-stock-bajo-" + umbral).unstarted(this::enviarPendientes);
+        }
+
+        private void encolar(Alerta alerta) {
+            if (!pendientes.offer(alerta)) {
+                // No consume sus eventos al ritmo en que llegan: se lo descarta en lugar de
+                // retener memoria sin límite.
+                descartar();
+            }
+        }
+
+        /**
+         * Da de baja al suscriptor; su hilo cierra la conexión en cuanto termina el envío en
+         * curso, sin que quien descarta tenga que esperarlo.
+         */
+        private void descartar() {
+            if (activo) {
+                activo = false;
+                darDeBaja(this);
+                if (Thread.currentThread() != hilo) {
+                    hilo.interrupt();
+                }
+            }
+        }
+
+        private void enviarPendientes() {
+            try {
+                for (Producto producto : iniciales.get()) {
+                    if (!activo || !enviar(new Alerta(EVENTO_STOCK_BAJO, producto))) {
+                        return;
+                    }
+                }
+                while (activo) {
+                    if (!enviar(pendientes.take())) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                descartar();
+                emisor.complete();
+            }
+        }
+
+        private boolean enviar(Alerta alerta) {
+            try {
+                emisor.send(SseEmitter.event().name(alerta.tipo())
+                        .id(String.valueOf(alerta.producto().getIdProducto())).data(alerta.producto()));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                return false;
+            }
+        }
+    }
+}
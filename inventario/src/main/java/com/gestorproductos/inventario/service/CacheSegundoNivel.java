@@ -0,0 +1,49 @@
+package com.gestorproductos.inventario.service;
+
+import java.util.Collection;
+
+import org.hibernate.Cache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.gestorproductos.inventario.model.Producto;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Desalojo de la caché de segundo nivel para las escrituras que no pasan por Hibernate (el
+ * volcado del libro de stock y la disminución atómica), que de otro modo dejarían en caché
+ * un stock y una versión viejos.
+ *
+ * <p>Se desaloja al escribir, para que la misma transacción relea la fila, y otra vez al
+ * terminar: entre ambos momentos otra transacción pudo volver a cargar en caché la fila
+ * anterior a la confirmación.
+ */
+@Component
+public class CacheSegundoNivel {
+
+    private final Cache cache;
+
+    public CacheSegundoNivel(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+
+    public void desalojarProductos(Collection<Integer> ids) {
+        desalojar(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    desalojar(ids);
+                }
+            });
+        }
+    }
+
+    private void desalojar(Collection<Integer> ids) {
+        for (Integer id : ids) {
+            cache.evictEntityData(Producto.class, id);
+        }
+    }
+}
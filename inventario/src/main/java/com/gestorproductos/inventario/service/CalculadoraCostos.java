@@ -0,0 +1,114 @@
+package com.gestorproductos.inventario.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Costo promedio ponderado y precio de venta con la semántica de las columnas
+ * {@code precision = 10, scale = 2}: el costo se redondea a centavos con HALF_UP y el precio
+ * es ese costo por {@code 1 + MARGEN_GANANCIA}, también redondeado a centavos con HALF_UP.
+ *
+ * <p>El cálculo se hace en centavos sobre {@code long}. Si algún importe tiene más de dos
+ * decimales o alguna operación desborda, se recurre a {@link BigDecimal}, así que el
+ * resultado es siempre idéntico (valor y escala) al del cálculo con {@link BigDecimal}.
+ */
+public final class CalculadoraCostos {
+
+    public static final BigDecimal MARGEN_GANANCIA = new BigDecimal("0.25");
+
+    private static final int ESCALA = 2;
+    private static final BigDecimal FACTOR_PRECIO = BigDecimal.ONE.add(MARGEN_GANANCIA);
+    private static final long FACTOR_PRECIO_NUMERADOR = FACTOR_PRECIO.unscaledValue().longValueExact();
+    private static final long FACTOR_PRECIO_DIVISOR = BigDecimal.ONE.movePointRight(FACTOR_PRECIO.scale())
+            .longValueExact();
+
+    // Un importe de hasta 16 dígitos cabe en long aun después de llevarlo a centavos.
+    private static final int PRECISION_MAXIMA = 16;
+    private static final long[] POTENCIAS_DE_DIEZ = { 1L, 10L, 100L };
+
+    private CalculadoraCostos() {
+    }
+
+    /**
+     * Costo promedio tras reponer {@code cantidad} unidades a {@code costoNuevo}. Un
+     * {@code costoAnterior} nulo cuenta como cero.
+     */
+    public static BigDecimal costoPromedio(BigDecimal costoAnterior, int stockAnterior, BigDecimal costoNuevo,
+            int cantidad) {
+        BigDecimal anterior = costoAnterior != null ? costoAnterior : BigDecimal.ZERO;
+        if (representable(anterior) && representable(costoNuevo)) {
+            try {
+                return BigDecimal.valueOf(costoPromedioCentavos(aCentavos(anterior), stockAnterior,
+                        aCentavos(costoNuevo), cantidad), ESCALA);
+            } catch (ArithmeticException e) {
+                // Desborde: se repite el cálculo con BigDecimal.
+            }
+        }
+        return costoPromedioExacto(anterior, stockAnterior, costoNuevo, cantidad);
+    }
+
+    public static BigDecimal precioVenta(BigDecimal costo) {
+        if (representable(costo)) {
+            try {
+                return BigDecimal.valueOf(precioVentaCentavos(aCentavos(costo)), ESCALA);
+            } catch (ArithmeticException e) {
+                // Desborde: se repite el cálculo con BigDecimal.
+            }
+        }
+        return precioVentaExacto(costo);
+    }
+
+    /**
+     * Variante en centavos para procesos masivos que ya trabajan con importes escalados.
+     *
+     * @throws ArithmeticException si el costo total no cabe en un {@code long}
+     */
+    public static long costoPromedioCentavos(long costoAnteriorCentavos, int stockAnterior, long costoNuevoCentavos,
+            int cantidad) {
+        long total = Math.addExact(Math.multiplyExact(costoAnteriorCentavos, stockAnterior),
+                Math.multiplyExact(costoNuevoCentavos, cantidad));
+        return dividirRedondeando(total, stockAnterior + cantidad);
+    }
+
+    /**
+     * @throws ArithmeticException si el costo por el factor de margen no cabe en un {@code long}
+     */
+    public static long precioVentaCentavos(long costoCentavos) {
+        return dividirRedondeando(Math.multiplyExact(costoCentavos, FACTOR_PRECIO_NUMERADOR), FACTOR_PRECIO_DIVISOR);
+    }
+
+    static BigDecimal costoPromedioExacto(BigDecimal costoAnterior, int stockAnterior, BigDecimal costoNuevo,
+            int cantidad) {
+        BigDecimal costoTotal = costoAnterior.multiply(BigDecimal.valueOf(stockAnterior))
+                .add(costoNuevo.multiply(BigDecimal.valueOf(cantidad)));
+        return costoTotal.divide(BigDecimal.valueOf(stockAnterior + cantidad), ESCALA, RoundingMode.HALF_UP);
+    }
+
+    static BigDecimal precioVentaExacto(BigDecimal costo) {
+        return costo.multiply(FACTOR_PRECIO).setScale(ESCALA, RoundingMode.HALF_UP);
+    }
+
+    private static boolean representable(BigDecimal valor) {
+        return valor.scale() >= 0 && valor.scale() <= ESCALA && valor.precision() <= PRECISION_MAXIMA;
+    }
+
+    private static long aCentavos(BigDecimal valor) {
+        return valor.unscaledValue().longValue() * POTENCIAS_DE_DIEZ[ESCALA - valor.scale()];
+    }
+
+    /**
+     * Cociente redondeado con HALF_UP (el empate se aleja de cero), igual que
+     * {@link RoundingMode#HALF_UP}.
+     */
+    private static long dividirRedondeando(long dividendo, long divisor) {
+        if (dividendo == Long.MIN_VALUE && divisor == -1) {
+            throw new ArithmeticException("long overflow");
+        }
+        long cociente = dividendo / divisor;
+        long resto = Math.abs(dividendo % divisor);
+        if (resto != 0 && resto >= Math.abs(divisor) - resto) {
+            cociente += ((dividendo ^ divisor) >> 63) | 1;
+        }
+        return cociente;
+    }
+}
@@ -0,0 +1,48 @@
+package com.gestorproductos.inventario.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.gestorproductos.inventario.dto.EventoCambio;
+import com.gestorproductos.inventario.dto.PaginaCambios;
+import com.gestorproductos.inventario.exception.InvalidRequestException;
+import com.gestorproductos.inventario.model.EventoOutbox;
+import com.gestorproductos.inventario.repository.EventoOutboxRepository;
+
+import io.micrometer.core.annotation.Timed;
+
+@Service
+@Transactional(readOnly = true)
+@Timed(value = "inventario.servicio", histogram = true)
+public class CambioService {
+
+    private static final int LIMITE_MAXIMO_PAGINA = 1000;
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+
+    public CambioService(EventoOutboxRepository eventoOutboxRepository) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+    }
+
+    public PaginaCambios obtenerDesde(Long desde, Integer limite) {
+        if (desde == null || desde < 0) {
+            throw new InvalidRequestException("desde", "debe ser mayor o igual a 0");
+        }
+        if (limite == null || limite <= 0 || limite > LIMITE_MAXIMO_PAGINA) {
+            throw new InvalidRequestException("limit", "debe estar entre 1 y " + LIMITE_MAXIMO_PAGINA);
+        }
+
+        List<EventoOutbox> eventos = eventoOutboxRepository.findByPosicionGreaterThanOrderByPosicionAsc(desde,
+                Limit.of(limite));
+        List<EventoCambio> cambios = new ArrayList<>(eventos.size());
+        for (EventoOutbox evento : eventos) {
+            cambios.add(EventoCambio.desde(evento));
+        }
+        long siguiente = cambios.isEmpty() ? desde : cambios.get(cambios.size() - 1).posicion();
+        return new PaginaCambios(cambios, siguiente);
+    }
+}
@@ -0,0 +1,312 @@
+package com.gestorproductos.inventario.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.gestorproductos.inventario.dto.ProductoAlta;
+import com.gestorproductos.inventario.dto.ResultadoImportacion;
+import com.gestorproductos.inventario.event.ProductoModificadoEvent;
+import com.gestorproductos.inventario.exception.InvalidProductStateException;
+import com.gestorproductos.inventario.exception.InvalidRequestException;
+import com.gestorproductos.inventario.model.EstadoProducto;
+import com.gestorproductos.inventario.model.Producto;
+import com.gestorproductos.inventario.repository.ProductoJdbcRepository;
+import com.gestorproductos.inventario.repository.ProductoRepository;
+
+import io.micrometer.core.annotation.Timed;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Importación y exportación masiva del catálogo. La importación lee la entrada de a una fila,
+ * aplica las mismas validaciones que {@link ProductoService#crear} y guarda las filas válidas
+ * en transacciones de {@code inventario.importacion.tamano-lote} filas, insertadas en lotes
+ * JDBC gracias a los ids por secuencia. Las filas inválidas se informan sin detener el resto.
+ */
+@Service
+@Timed(value = "inventario.servicio", histogram = true)
+public class CatalogoService {
+
+    static final String[] COLUMNAS = { "idProducto", "nombreProducto", "descripcion", "precioVenta",
+            "costoCompra", "stockActual", "estadoProducto", "version" };
+
+    private static final int MAXIMO_ERRORES_REPORTADOS = 1000;
+
+    private final ProductoService productoService;
+    private final ProductoRepository productoRepository;
+    private final ProductoJdbcRepository productoJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MetricasInventario metricasInventario;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader lectorProducto;
+    private final int tamanoLote;
+
+    public CatalogoService(ProductoService productoService, ProductoRepository productoRepository,
+            ProductoJdbcRepository productoJdbcRepository, ApplicationEventPublisher eventPublisher,
+            MetricasInventario metricasInventario, EntityManager entityManager,
+            PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+            @Value("${inventario.importacion.tamano-lote:500}") int tamanoLote) {
+        this.productoService = productoService;
+        this.productoRepository = productoRepository;
+        this.productoJdbcRepository = productoJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.metricasInventario = metricasInventario;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lectorProducto = objectMapper.readerFor(ProductoAlta.class);
+        this.tamanoLote = tamanoLote;
+    }
+
+    public ResultadoImportacion importarCsv(InputStream entrada) throws IOException {
+        LectorCsv csv = new LectorCsv(new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8)));
+        List<String> encabezado = csv.leerRegistro();
+        if (encabezado == null) {
+            throw new InvalidRequestException("csv", "debe incluir una fila de encabezado");
+        }
+        Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < encabezado.size(); i++) {
+            indices.put(encabezado.get(i).trim(), i);
+        }
+        for (String obligatoria : new String[] { "nombreProducto", "precioVenta", "stockActual" }) {
+            if (!indices.containsKey(obligatoria)) {
+                throw new InvalidRequestException("csv", "falta la columna " + obligatoria);
+            }
+        }
+
+        Importacion importacion = new Importacion();
+        long fila = 0;
+        List<String> registro;
+        while ((registro = csv.leerRegistro()) != null) {
+            if (registro.size() == 1 && registro.get(0).isBlank()) {
+                continue;
+            }
+            fila++;
+            try {
+                importacion.agregar(fila, desdeCsv(registro, indices));
+            } catch (InvalidRequestException | InvalidProductStateException e) {
+                importacion.rechazar(fila, e);
+            }
+        }
+        return importacion.terminar();
+    }
+
+    public ResultadoImportacion importarNdjson(InputStream entrada) throws IOException {
+        BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        Importacion importacion = new Importacion();
+        long fila = 0;
+        String linea;
+        while ((linea = lector.readLine()) != null) {
+            if (linea.isBlank()) {
+                continue;
+            }
+            fila++;
+            ProductoAlta alta;
+            try {
+                alta = lectorProducto.readValue(linea);
+            } catch (JsonProcessingException e) {
+                if (NestedExceptionUtils.getMostSpecificCause(e) instanceof InvalidProductStateException estado) {
+                    importacion.rechazar(fila, estado);
+                } else {
+                    importacion.rechazar(fila, "JSON inválido: " + e.getOriginalMessage());
+                }
+                continue;
+            }
+            Producto producto;
+            try {
+                producto = alta.aProducto();
+            } catch (InvalidRequestException e) {
+                importacion.rechazar(fila, e);
+                continue;
+            }
+            importacion.agregar(fila, producto);
+        }
+        return importacion.terminar();
+    }
+
+    /**
+     * Escribe el catálogo completo como CSV recorriéndolo con un cursor, sin retenerlo en memoria.
+     */
+    @Transactional(readOnly = true)
+    public void exportarCsv(OutputStream salida) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        EscritorCsv csv = new EscritorCsv(escritor);
+        csv.escribirRegistro((Object[]) COLUMNAS);
+        try {
+            productoJdbcRepository.recorrerTodos(producto -> {
+                try {
+                    csv.escribirRegistro(producto.getIdProducto(), producto.getNombreProducto(),
+                            producto.getDescripcion(), importe(producto.getPrecioVenta()),
+                            importe(producto.getCostoCompra()), producto.getStockActual(),
+                            producto.getEstadoProducto().getEtiqueta(), producto.getVersion());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        escritor.flush();
+    }
+
+    private static Producto desdeCsv(List<String> registro, Map<String, Integer> indices) {
+        Producto producto = new Producto();
+        producto.setNombreProducto(campo(registro, indices, "nombreProducto"));
+        producto.setDescripcion(campo(registro, indices, "descripcion"));
+        producto.setPrecioVenta(decimal(registro, indices, "precioVenta"));
+        producto.setCostoCompra(decimal(registro, indices, "costoCompra"));
+        String stock = campo(registro, indices, "stockActual");
+        if (stock == null) {
+            throw new InvalidRequestException("stockActual", "es obligatorio");
+        }
+        try {
+            producto.setStockActual(Integer.parseInt(stock.trim()));
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("stockActual", "no es un número entero válido");
+        }
+        producto.setEstadoProducto(EstadoProducto.desde(campo(registro, indices, "estadoProducto")));
+        return producto;
+    }
+
+    private static String campo(List<String> registro, Map<String, Integer> indices, String columna) {
+        Integer indice = indices.get(columna);
+        if (indice == null || indice >= registro.size() || registro.get(indice).isEmpty()) {
+            return null;
+        }
+        return registro.get(indice);
+    }
+
+    private static BigDecimal decimal(List<String> registro, Map<String, Integer> indices, String columna) {
+        String valor = campo(registro, indices, columna);
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException(columna, "no es un número válido");
+        }
+    }
+
+    private static String importe(BigDecimal valor) {
+        return valor != null ? valor.toPlainString() : null;
+    }
+
+    private final class Importacion {
+
+        private final List<Producto> lote = new ArrayList<>(tamanoLote);
+        private final List<Long> filasLote = new ArrayList<>(tamanoLote);
+        private final List<ResultadoImportacion.ErrorFila> errores = new ArrayList<>();
+        private long procesadas;
+        private long importadas;
+        private long rechazadas;
+
+        void agregar(long fila, Producto producto) {
+            try {
+                productoService.validarAlta(producto);
+            } catch (InvalidRequestException | InvalidProductStateException e) {
+                rechazar(fila, e);
+                return;
+            }
+            procesadas++;
+            lote.add(producto);
+            filasLote.add(fila);
+            if (lote.size() == tamanoLote) {
+                guardarLote();
+            }
+        }
+
+        void rechazar(long fila, RuntimeException excepcion) {
+            metricasInventario.registrarRechazo(excepcion);
+            rechazar(fila, excepcion.getMessage());
+        }
+
+        void rechazar(long fila, String mensaje) {
+            procesadas++;
+            registrarError(fila, mensaje);
+        }
+
+        ResultadoImportacion terminar() {
+            if (!lote.isEmpty()) {
+                guardarLote();
+            }
+            return new ResultadoImportacion(procesadas, importadas, rechazadas, errores);
+        }
+
+        private void guardarLote() {
+            try {
+                guardar(lote);
+                importadas += lote.size();
+            } catch (DataAccessException | TransactionException e) {
+                // Se reintenta fila por fila para atribuir el error solo a las filas que lo causan.
+                for (int i = 0; i < lote.size(); i++) {
+                    try {
+                        guardar(List.of(lote.get(i)));
+                        importadas++;
+                    } catch (DataAccessException | TransactionException errorFila) {
+                        registrarError(filasLote.get(i), "No se pudo guardar la fila: "
+                                + NestedExceptionUtils.getMostSpecificCause(errorFila).getMessage());
+                    }
+                }
+            }
+            lote.clear();
+            filasLote.clear();
+        }
+
+        /**
+         * Inserta copias sin id ni versión: una transacción revertida deja asignados los de la
+         * secuencia en las entidades que intentó insertar, y el reintento debe partir de cero.
+         */
+        private void guardar(List<Producto> productos) {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(tamanoLote);
+                List<Producto> altas = new ArrayList<>(productos.size());
+                for (Producto producto : productos) {
+                    Producto alta = new Producto(producto);
+                    alta.setIdProducto(null);
+                    alta.setVersion(null);
+                    altas.add(alta);
+                }
+                productoRepository.saveAll(altas);
+                productoRepository.flush();
+                for (Producto alta : altas) {
+                    eventPublisher.publishEvent(new ProductoModificadoEvent(null, new Producto(alta)));
+                }
+            });
+        }
+
+        private void registrarError(long fila, String mensaje) {
+            rechazadas++;
+            if (errores.size() < MAXIMO_ERRORES_REPORTADOS) {
+                errores.add(new ResultadoImportacion.ErrorFila(fila, mensaje));
+            }
+        }
+    }
+}
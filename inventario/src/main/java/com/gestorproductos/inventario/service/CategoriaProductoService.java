@@ -1,25 +1,39 @@
 package com.gestorproductos.inventario.service;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.CRC32C;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.gestorproductos.inventario.event.CategoriaModificadaEvent;
 import com.gestorproductos.inventario.exception.DuplicateResourceException;
 import com.gestorproductos.inventario.exception.InvalidRequestException;
 import com.gestorproductos.inventario.exception.NotFoundException;
 import com.gestorproductos.inventario.model.CategoriaProducto;
 import com.gestorproductos.inventario.repository.CategoriaProductoRepository;
 
+import io.micrometer.core.annotation.Timed;
+
 @Service
 @Transactional
+@Timed(value = "inventario.servicio", histogram = true)
 public class CategoriaProductoService {
 
     private final CategoriaProductoRepository categoriaProductoRepository;
+    private final CategoriaRegistro categoriaRegistro;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CategoriaProductoService(CategoriaProductoRepository categoriaProductoRepository) {
+    public CategoriaProductoService(CategoriaProductoRepository categoriaProductoRepository,
+            CategoriaRegistro categoriaRegistro, ApplicationEventPublisher eventPublisher) {
         this.categoriaProductoRepository = categoriaProductoRepository;
+        this.categoriaRegistro = categoriaRegistro;
+        this.eventPublisher = eventPublisher;
     }
 
     public CategoriaProducto crear(CategoriaProducto categoria) {
@@ -27,39 +41,64 @@ public class CategoriaProductoService {
             throw new InvalidRequestException("nombreCategoria", "es obligatorio");
         }
 
-        if (categoriaProductoRepository.existsByNombreCategoria(categoria.getNombreCategoria())) {
+        categoria.setNombreCategoria(categoria.getNombreCategoria().trim());
+        if (categoriaRegistro.existeNombre(categoria.getNombreCategoria())) {
             throw new DuplicateResourceException("categoría", categoria.getNombreCategoria());
         }
 
-        categoria.setNombreCategoria(categoria.getNombreCategoria().trim());
-        return categoriaProductoRepository.save(categoria);
+        CategoriaProducto creada = guardar(categoria);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(null, new CategoriaProducto(creada)));
+        return creada;
     }
 
     @Transactional(readOnly = true)
     public CategoriaProducto obtenerPorId(Integer id) {
-        Optional<CategoriaProducto> categoria = categoriaProductoRepository.findById(id);
-        if (categoria.isEmpty()) {
+        CategoriaProducto categoria = categoriaRegistro.porId(id);
+        if (categoria == null) {
             throw new NotFoundException("Categoría", id.toString());
         }
-        return categoria.get();
+        return categoria;
     }
 
     @Transactional(readOnly = true)
     public List<CategoriaProducto> obtenerTodas() {
-        return categoriaProductoRepository.findAll();
+        return categoriaRegistro.todas();
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String marcaVersion(CategoriaProducto categoria) {
+        return categoria.getIdCategoria() + "-" + categoria.getVersion();
+    }
+
+    /**
+     * Marca de versión de un listado de categorías: cambia si cambia la versión de alguna o el
+     * conjunto de ids. Se calcula sobre la misma lista que se responde.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String marcaVersion(List<CategoriaProducto> categorias) {
+        CRC32C suma = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+        for (CategoriaProducto categoria : categorias) {
+            buffer.clear();
+            buffer.putInt(categoria.getIdCategoria());
+            buffer.putLong(categoria.getVersion() != null ? categoria.getVersion() : 0L);
+            suma.update(buffer.array(), 0, buffer.position());
+        }
+        return categorias.size() + "-" + Long.toHexString(suma.getValue());
     }
 
     @Transactional(readOnly = true)
     public CategoriaProducto obtenerPorNombre(String nombreCategoria) {
-        Optional<CategoriaProducto> categoria = categoriaProductoRepository.findByNombreCategoria(nombreCategoria);
-        if (categoria.isEmpty()) {
+        CategoriaProducto categoria = categoriaRegistro.porNombre(nombreCategoria);
+        if (categoria == null) {
             throw new NotFoundException("Categoría", nombreCategoria);
         }
-        return categoria.get();
+        return categoria;
     }
 
     public CategoriaProducto actualizar(Integer id, CategoriaProducto categoriaActualizada) {
-        CategoriaProducto categoriaExistente = obtenerPorId(id);
+        CategoriaProducto categoriaExistente = buscarEntidad(id);
+        CategoriaProducto anterior = new CategoriaProducto(categoriaExistente);
 
         if (categoriaActualizada.getNombreCategoria() == null || 
             categoriaActualizada.getNombreCategoria().trim().isEmpty()) {
@@ -68,18 +107,39 @@ public class CategoriaProductoService {
 
         String nuevoNombre = categoriaActualizada.getNombreCategoria().trim();
         if (!categoriaExistente.getNombreCategoria().equals(nuevoNombre) && 
-            categoriaProductoRepository.existsByNombreCategoria(nuevoNombre)) {
+            categoriaRegistro.existeNombre(nuevoNombre)) {
             throw new DuplicateResourceException("categoría", nuevoNombre);
         }
 
         categoriaExistente.setNombreCategoria(nuevoNombre);
         categoriaExistente.setDescripcion(categoriaActualizada.getDescripcion());
 
-        return categoriaProductoRepository.save(categoriaExistente);
+        CategoriaProducto actualizada = guardar(categoriaExistente);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(anterior, new CategoriaProducto(actualizada)));
+        return actualizada;
     }
 
     public void eliminar(Integer id) {
-        CategoriaProducto categoria = obtenerPorId(id);
+        CategoriaProducto categoria = buscarEntidad(id);
         categoriaProductoRepository.delete(categoria);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(new CategoriaProducto(categoria), null));
+    }
+
+    private CategoriaProducto buscarEntidad(Integer id) {
+        Optional<CategoriaProducto> categoria = categoriaProductoRepository.findById(id);
+        if (categoria.isEmpty()) {
+            throw new NotFoundException("Categoría", id.toString());
+        }
+        return categoria.get();
+    }
+
+    private CategoriaProducto guardar(CategoriaProducto categoria) {
+        // El registro puede no haber visto aún un alta hecha en otra instancia; la restricción
+        // única de nombre_categoria sigue siendo la garantía final.
+        try {
+            return categoriaProductoRepository.saveAndFlush(categoria);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateResourceException("categoría", categoria.getNombreCategoria());
+        }
     }
-} 
\ No newline at end of file
+}
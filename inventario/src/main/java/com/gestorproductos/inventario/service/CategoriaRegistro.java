@@ -0,0 +1,112 @@
+package com.gestorproductos.inventario.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.gestorproductos.inventario.event.CategoriaModificadaEvent;
+import com.gestorproductos.inventario.model.CategoriaProducto;
+import com.gestorproductos.inventario.repository.CategoriaProductoRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Registro inmutable de categorías indexado por id y por nombre. Se carga al arrancar y se
+ * reemplaza completo (copy-on-write) tras cada alta, modificación o baja confirmada; las
+ * lecturas son búsquedas en mapas sin tocar la base de datos. Cada lectura devuelve copias:
+ * quien modifica una categoría obtenida del registro no altera la que ven los demás.
+ */
+@Component
+public class CategoriaRegistro {
+
+    private final CategoriaProductoRepository categoriaProductoRepository;
+    private final ReentrantLock bloqueo = new ReentrantLock();
+    private volatile Indice indice = Indice.construir(List.of());
+
+    public CategoriaRegistro(CategoriaProductoRepository categoriaProductoRepository) {
+        this.categoriaProductoRepository = categoriaProductoRepository;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${inventario.categorias.intervalo-recarga-ms:300000}",
+            initialDelayString = "${inventario.categorias.intervalo-recarga-ms:300000}")
+    public void recargar() {
+        // ReentrantLock en lugar de synchronized: la recarga bloquea en JDBC y, con hilos
+        // virtuales, un monitor retenido durante E/S fija el hilo portador.
+        bloqueo.lock();
+        try {
+            List<CategoriaProducto> categorias = new ArrayList<>();
+            for (CategoriaProducto categoria : categoriaProductoRepository.findAll()) {
+                categorias.add(new CategoriaProducto(categoria));
+            }
+            indice = Indice.construir(categorias);
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    public List<CategoriaProducto> todas() {
+        List<CategoriaProducto> todas = indice.todas();
+        List<CategoriaProducto> copias = new ArrayList<>(todas.size());
+        for (CategoriaProducto categoria : todas) {
+            copias.add(new CategoriaProducto(categoria));
+        }
+        return copias;
+    }
+
+    public CategoriaProducto porId(Integer id) {
+        return copia(indice.porId().get(id));
+    }
+
+    public CategoriaProducto porNombre(String nombreCategoria) {
+        return copia(indice.porNombre().get(nombreCategoria));
+    }
+
+    public boolean existeNombre(String nombreCategoria) {
+        return indice.porNombre().containsKey(nombreCategoria);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void alModificarCategoria(CategoriaModificadaEvent evento) {
+        bloqueo.lock();
+        try {
+            Map<Integer, CategoriaProducto> porId = new HashMap<>(indice.porId());
+            if (evento.actual() == null) {
+                porId.remove(evento.idCategoria());
+            } else {
+                porId.put(evento.idCategoria(), new CategoriaProducto(evento.actual()));
+            }
+            indice = Indice.construir(porId.values());
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    private static CategoriaProducto copia(CategoriaProducto categoria) {
+        return categoria != null ? new CategoriaProducto(categoria) : null;
+    }
+
+    private record Indice(Map<Integer, CategoriaProducto> porId, Map<String, CategoriaProducto> porNombre,
+            List<CategoriaProducto> todas) {
+
+        static Indice construir(Iterable<CategoriaProducto> categorias) {
+            Map<Integer, CategoriaProducto> porId = new HashMap<>();
+            Map<String, CategoriaProducto> porNombre = new HashMap<>();
+            List<CategoriaProducto> todas = new ArrayList<>();
+            for (CategoriaProducto categoria : categorias) {
+                porId.put(categoria.getIdCategoria(), categoria);
+                porNombre.put(categoria.getNombreCategoria(), categoria);
+                todas.add(categoria);
+            }
+            todas.sort(Comparator.comparing(CategoriaProducto::getIdCategoria));
+            return new Indice(Map.copyOf(porId), Map.copyOf(porNombre), List.copyOf(todas));
+        }
+    }
+}
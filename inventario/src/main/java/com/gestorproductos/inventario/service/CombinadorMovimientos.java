@@ -0,0 +1,247 @@
+package com.gestorproductos.inventario.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import com.gestorproductos.inventario.dto.MovimientoStock;
+import com.gestorproductos.inventario.model.Producto;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Combina las escrituras de stock concurrentes sobre un mismo producto en una transacción por
+ * ventana de {@code inventario.stock.combinacion.ventana}. Cada solicitud conserva su propio
+ * resultado; ante un conflicto de versión el grupo se reintenta una vez.
+ */
+@Component
+public class CombinadorMovimientos {
+
+    private static final Logger log = LoggerFactory.getLogger(CombinadorMovimientos.class);
+    private static final Duration ESPERA_DETENCION = Duration.ofSeconds(10);
+
+    private final ProductoService productoService;
+    private final boolean habilitada;
+    private final long ventanaNanos;
+    private final int tamanoMaximoLote;
+    private final DistributionSummary tamanoLotes;
+    private final Map<Integer, Cola> colas = new ConcurrentHashMap<>();
+    // Solo existen con la combinación habilitada.
+    private final ScheduledExecutorService temporizador;
+    private final ExecutorService aplicaciones;
+
+    public CombinadorMovimientos(ProductoService productoService, MeterRegistry meterRegistry,
+            @Value("${inventario.stock.combinacion.habilitada:false}") boolean habilitada,
+            @Value("${inventario.stock.combinacion.ventana:PT0.005S}") Duration ventana,
+            @Value("${inventario.stock.combinacion.tamano-maximo-lote:256}") int tamanoMaximoLote) {
+        this.productoService = productoService;
+        this.habilitada = habilitada;
+        this.ventanaNanos = ventana.toNanos();
+        this.tamanoMaximoLote = Math.max(tamanoMaximoLote, 1);
+        if (habilitada) {
+            this.temporizador = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("combinacion-movimientos").daemon().factory());
+            // Las transacciones esperan a la base de datos; con hilos virtuales cada producto
+            // aplica su grupo sin retener un hilo de plataforma.
+            this.aplicaciones = Executors.newVirtualThreadPerTaskExecutor();
+        } else {
+            this.temporizador = null;
+            this.aplicaciones = null;
+        }
+        this.tamanoLotes = DistributionSummary.builder("inventario.stock.combinacion.lote")
+                .description("Solicitudes de stock aplicadas en cada transacción combinada")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        if (!habilitada) {
+            return;
+        }
+        // shutdown (no shutdownNow) conserva las ventanas programadas: se ejecutan y entregan sus
+        // grupos a las aplicaciones antes de que el temporizador termine.
+        temporizador.shutdown();
+        temporizador.awaitTermination(ESPERA_DETENCION.toMillis(), TimeUnit.MILLISECONDS);
+        aplicaciones.shutdown();
+        if (!aplicaciones.awaitTermination(ESPERA_DETENCION.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Quedaron grupos de movimientos de stock sin aplicar al detener el combinador");
+        }
+        colas.values().forEach(Cola::descartar);
+    }
+
+    public Producto aumentarStock(Integer id, Integer cantidad, BigDecimal costoCompra) {
+        if (!habilitada) {
+            return productoService.aumentarStock(id, cantidad, costoCompra);
+        }
+        return encolar(new MovimientoStock(id, MovimientoStock.Tipo.AUMENTAR, cantidad, costoCompra));
+    }
+
+    public Producto disminuirStock(Integer id, Integer cantidad) {
+        if (!habilitada) {
+            return productoService.disminuirStock(id, cantidad);
+        }
+        return encolar(new MovimientoStock(id, MovimientoStock.Tipo.DISMINUIR, cantidad, null));
+    }
+
+    private Producto encolar(MovimientoStock movimiento) {
+        Pendiente pendiente = new Pendiente(movimiento, new CompletableFuture<>());
+        while (true) {
+            Cola cola = colas.computeIfAbsent(movimiento.idProducto(), Cola::new);
+            if (cola.agregar(pendiente)) {
+                break;
+            }
+            // La cola se retiró del mapa tras vaciarse; se crea otra.
+        }
+        try {
+            return pendiente.resultado().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private void aplicar(List<Pendiente> grupo) {
+        List<MovimientoStock> movimientos = new ArrayList<>(grupo.size());
+        for (Pendiente pendiente : grupo) {
+            movimientos.add(pendiente.movimiento());
+        }
+        tamanoLotes.record(grupo.size());
+        try {
+            List<ProductoService.MovimientoAplicado> aplicados = aplicarConReintento(movimientos);
+            for (int i = 0; i < grupo.size(); i++) {
+                ProductoService.MovimientoAplicado aplicado = aplicados.get(i);
+                if (aplicado.error() == null) {
+                    grupo.get(i).resultado().complete(aplicado.producto());
+                } else {
+                    grupo.get(i).resultado().completeExceptionally(aplicado.error());
+                }
+            }
+        } catch (RuntimeException e) {
+            // La transacción completa falló (conflicto de versión, base de datos no
+            // disponible): ninguna solicitud del grupo quedó aplicada.
+            for (Pendiente pendiente : grupo) {
+                pendiente.resultado().completeExceptionally(e);
+            }
+        }
+    }
+
+    private List<ProductoService.MovimientoAplicado> aplicarConReintento(List<MovimientoStock> movimientos) {
+        try {
+            return productoService.aplicarEnGrupo(movimientos);
+        } catch (OptimisticLockingFailureException e) {
+            // Una escritura que no pasó por el combinador modificó un producto del grupo. La
+            // transacción se revirtió entera, así que repetirla no duplica ningún movimiento.
+            return productoService.aplicarEnGrupo(movimientos);
+        }
+    }
+
+    private final class Cola {
+
+        private final Integer idProducto;
+        private final ReentrantLock bloqueo = new ReentrantLock();
+        private List<Pendiente> pendientes = new ArrayList<>();
+        private boolean programada;
+        private boolean retirada;
+
+        Cola(Integer idProducto) {
+            this.idProducto = idProducto;
+        }
+
+        boolean agregar(Pendiente pendiente) {
+            bloqueo.lock();
+            try {
+                if (retirada) {
+                    return false;
+                }
+                pendientes.add(pendiente);
+                if (!programada) {
+                    try {
+                        temporizador.schedule(() -> aplicaciones.execute(this::vaciar), ventanaNanos,
+                                TimeUnit.NANOSECONDS);
+                        programada = true;
+                    } catch (RejectedExecutionException e) {
+                        // El combinador se está deteniendo; la cola estaba vacía.
+                        pendientes.remove(pendiente);
+                        pendiente.resultado().completeExceptionally(detenido());
+                    }
+                }
+                return true;
+            } finally {
+                bloqueo.unlock();
+            }
+        }
+
+        /**
+         * Aplica los pendientes de a grupos de como máximo {@code tamanoMaximoLote} hasta dejar
+         * la cola vacía. Lo que llega mientras se aplica un grupo entra en el siguiente, sin
+         * esperar otra ventana.
+         */
+        private void vaciar() {
+            while (true) {
+                List<Pendiente> grupo;
+                bloqueo.lock();
+                try {
+                    if (pendientes.isEmpty()) {
+                        programada = false;
+                        retirada = true;
+                        colas.remove(idProducto, this);
+                        return;
+                    }
+                    if (pendientes.size() <= tamanoMaximoLote) {
+                        grupo = pendientes;
+                        pendientes = new ArrayList<>();
+                    } else {
+                        grupo = new ArrayList<>(pendientes.subList(0, tamanoMaximoLote));
+                        pendientes.subList(0, tamanoMaximoLote).clear();
+                    }
+                } finally {
+                    bloqueo.unlock();
+                }
+                aplicar(grupo);
+            }
+        }
+
+        /** Rechaza los pendientes que no llegaron a aplicarse antes de la detención. */
+        private void descartar() {
+            bloqueo.lock();
+            try {
+                retirada = true;
+                for (Pendiente pendiente : pendientes) {
+                    pendiente.resultado().completeExceptionally(detenido());
+                }
+                pendientes.clear();
+            } finally {
+                bloqueo.unlock();
+            }
+        }
+    }
+
+    private static IllegalStateException detenido() {
+        return new IllegalStateException("El combinador de movimientos de stock se está deteniendo");
+    }
+
+    private record Pendiente(MovimientoStock movimiento, CompletableFuture<Producto> resultado) {
+    }
+}
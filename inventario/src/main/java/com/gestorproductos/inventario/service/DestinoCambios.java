@@ -0,0 +1,15 @@
+package com.gestorproductos.inventario.service;
+
+import java.util.List;
+
+import com.gestorproductos.inventario.dto.EventoCambio;
+
+/**
+ * Destino al que el relay del outbox entrega los cambios, en orden de posición y por lotes.
+ * La entrega es al menos una vez: si la transacción del relay falla después de publicar, el
+ * lote se vuelve a entregar con las mismas posiciones.
+ */
+public interface DestinoCambios {
+
+    void publicar(List<EventoCambio> cambios);
+}
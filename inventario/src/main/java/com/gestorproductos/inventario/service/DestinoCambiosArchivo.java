@@ -0,0 +1,54 @@
+package com.gestorproductos.inventario.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.gestorproductos.inventario.dto.EventoCambio;
+
+/**
+ * Agrega cada lote de cambios como líneas NDJSON al final de un archivo.
+ */
+@Component
+@ConditionalOnProperty(name = "inventario.outbox.destino", havingValue = "archivo")
+public class DestinoCambiosArchivo implements DestinoCambios {
+
+    private final ObjectWriter escritor;
+    private final Path archivo;
+
+    public DestinoCambiosArchivo(ObjectMapper objectMapper,
+            @Value("${inventario.outbox.archivo:./data/cambios.ndjson}") String archivo) {
+        this.escritor = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.archivo = Paths.get(archivo);
+    }
+
+    @Override
+    public void publicar(List<EventoCambio> cambios) {
+        try {
+            if (archivo.getParent() != null) {
+                Files.createDirectories(archivo.getParent());
+            }
+            try (OutputStream salida = Files.newOutputStream(archivo, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND)) {
+                for (EventoCambio cambio : cambios) {
+                    escritor.writeValue(salida, cambio);
+                    salida.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron escribir los cambios en " + archivo, e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.gestorproductos.inventario.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.gestorproductos.inventario.dto.EventoCambio;
+
+/**
+ * Broker en proceso que reparte cada lote entre los consumidores suscritos. Sustituye a un
+ * broker externo en desarrollo y pruebas; es el destino por defecto.
+ */
+@Component
+@ConditionalOnProperty(name = "inventario.outbox.destino", havingValue = "memoria", matchIfMissing = true)
+public class DestinoCambiosMemoria implements DestinoCambios {
+
+    private final List<Consumer<List<EventoCambio>>> consumidores = new CopyOnWriteArrayList<>();
+
+    public void suscribir(Consumer<List<EventoCambio>> consumidor) {
+        consumidores.add(consumidor);
+    }
+
+    @Override
+    public void publicar(List<EventoCambio> cambios) {
+        for (Consumer<List<EventoCambio>> consumidor : consumidores) {
+            consumidor.accept(cambios);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.gestorproductos.inventario.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gestorproductos.inventario.dto.ResumenMovimientos;
+import com.gestorproductos.inventario.exception.InvalidRequestException;
+import com.gestorproductos.inventario.model.EstadoProducto;
+import com.gestorproductos.inventario.model.Producto;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Diario de movimientos de stock. Cada aumento, disminución o cambio de estado agrega una fila
+ * a {@code movimientos_stock} en la misma transacción que la escritura, así que el diario
+ * contiene exactamente los movimientos confirmados.
+ *
+ * <p>Las consultas de historial no recorren el diario: leen {@code movimientos_stock_hora},
+ * con los totales por producto y hora. Un proceso periódico suma a esos buckets los
+ * movimientos todavía no agregados, tomados con {@code FOR UPDATE SKIP LOCKED} como el relay
+ * del outbox; sumar en cada escritura bloquearía la fila del bucket y volvería a serializar
+ * las ventas de un mismo producto. El historial va, por lo tanto, hasta un intervalo de
+ * agregación por detrás del diario.
+ */
+@Component
+public class DiarioStock {
+
+    private static final Logger log = LoggerFactory.getLogger(DiarioStock.class);
+
+    private static final String SQL_REGISTRAR = "INSERT INTO movimientos_stock (id_producto, origen, cantidad, "
+            + "costo_unitario, stock_resultante, estado_anterior, estado_nuevo, registrado_en) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Marca un lote de pendientes y suma sus movimientos a los buckets en una sola sentencia;
+    // devuelve una fila por bucket modificado.
+    private static final String SQL_AGREGAR = "WITH pendientes AS ("
+            + "SELECT id, registrado_en FROM movimientos_stock WHERE NOT agregado "
+            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED), "
+            + "marcados AS ("
+            + "UPDATE movimientos_stock m SET agregado = TRUE FROM pendientes p "
+            + "WHERE m.id = p.id AND m.registrado_en = p.registrado_en "
+            + "RETURNING m.id_producto, m.cantidad, m.costo_unitario, m.registrado_en) "
+            + "INSERT INTO movimientos_stock_hora AS h (id_producto, hora, unidades_entrada, unidades_salida, "
+            + "costo_entradas, unidades_costeadas, movimientos) "
+            + "SELECT id_producto, date_trunc('hour', registrado_en, 'UTC'), "
+            + "SUM(GREATEST(cantidad, 0)), SUM(GREATEST(-cantidad, 0)), "
+            + "COALESCE(SUM(cantidad * costo_unitario) FILTER (WHERE cantidad > 0 AND costo_unitario IS NOT NULL), 0), "
+            + "COALESCE(SUM(cantidad) FILTER (WHERE cantidad > 0 AND costo_unitario IS NOT NULL), 0), "
+            + "COUNT(*) "
+            + "FROM marcados GROUP BY 1, 2 "
+            + "ON CONFLICT (id_producto, hora) DO UPDATE SET "
+            + "unidades_entrada = h.unidades_entrada + EXCLUDED.unidades_entrada, "
+            + "unidades_salida = h.unidades_salida + EXCLUDED.unidades_salida, "
+            + "costo_entradas = h.costo_entradas + EXCLUDED.costo_entradas, "
+            + "unidades_costeadas = h.unidades_costeadas + EXCLUDED.unidades_costeadas, "
+            + "movimientos = h.movimientos + EXCLUDED.movimientos";
+
+    private static final String SQL_RESUMEN = "SELECT date_trunc('%s', hora, 'UTC') AS periodo, "
+            + "SUM(unidades_entrada), SUM(unidades_salida), SUM(costo_entradas), SUM(unidades_costeadas), "
+            + "SUM(movimientos) FROM movimientos_stock_hora WHERE %s hora >= ? AND hora < ? "
+            + "GROUP BY 1 ORDER BY 1";
+
+    private static final DateTimeFormatter SUFIJO_PARTICION = DateTimeFormatter.ofPattern("yyyy_MM", Locale.ROOT);
+
+    private static final RowMapper<ResumenMovimientos> RESUMEN_ROW_MAPPER = (rs, fila) -> {
+        BigDecimal costoEntradas = rs.getBigDecimal(4);
+        long unidadesCosteadas = rs.getLong(5);
+        BigDecimal costoPromedio = unidadesCosteadas > 0
+                ? costoEntradas.divide(BigDecimal.valueOf(unidadesCosteadas), 2, RoundingMode.HALF_UP)
+                : null;
+        return new ResumenMovimientos(rs.getTimestamp(1).toInstant(), rs.getLong(2), rs.getLong(3),
+                costoPromedio, rs.getLong(6));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitado;
+    private final int tamanoLote;
+    private final ReentrantLock agregacion = new ReentrantLock();
+
+    public DiarioStock(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            @Value("${inventario.diario-stock.habilitado:true}") boolean habilitado,
+            @Value("${inventario.diario-stock.tamano-lote:5000}") int tamanoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.habilitado = habilitado;
+        this.tamanoLote = tamanoLote;
+    }
+
+    @PostConstruct
+    void iniciar() {
+        crearParticiones();
+    }
+
+    /**
+     * Registra los movimientos en la transacción actual, en un solo lote JDBC.
+     */
+    void registrar(List<Movimiento> movimientos) {
+        if (!habilitado || movimientos.isEmpty()) {
+            return;
+        }
+        Timestamp ahora = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(SQL_REGISTRAR, movimientos, movimientos.size(), (ps, m) -> {
+            ps.setInt(1, m.idProducto());
+            ps.setShort(2, m.origen().codigo);
+            ps.setInt(3, m.cantidad());
+            if (m.costoUnitario() != null) {
+                ps.setBigDecimal(4, m.costoUnitario());
+            } else {
+                ps.setNull(4, Types.NUMERIC);
+            }
+            ps.setInt(5, m.stockResultante());
+            ps.setShort(6, m.estadoAnterior().getCodigo());
+            ps.setShort(7, m.estadoNuevo().getCodigo());
+            ps.setTimestamp(8, ahora);
+        });
+    }
+
+    void registrar(Movimiento movimiento) {
+        registrar(List.of(movimiento));
+    }
+
+    /**
+     * Totales por hora o día entre {@code desde} (inclusive) y {@code hasta} (exclusive), de un
+     * producto o, con {@code idProducto} nulo, de todo el catálogo. Los períodos sin movimientos
+     * no se incluyen.
+     */
+    public List<ResumenMovimientos> resumir(Integer idProducto, Granularidad granularidad, Instant desde,
+            Instant hasta) {
+        if (idProducto == null) {
+            return jdbcTemplate.query(String.format(SQL_RESUMEN, granularidad.unidad, ""), RESUMEN_ROW_MAPPER,
+                    Timestamp.from(desde), Timestamp.from(hasta));
+        }
+        return jdbcTemplate.query(String.format(SQL_RESUMEN, granularidad.unidad, "id_producto = ? AND"),
+                RESUMEN_ROW_MAPPER, idProducto, Timestamp.from(desde), Timestamp.from(hasta));
+    }
+
+    @Scheduled(fixedDelayString = "${inventario.diario-stock.intervalo-agregacion-ms:1000}")
+    public void agregarPendientes() {
+        if (!habilitado || !agregacion.tryLock()) {
+            return;
+        }
+        try {
+            Integer buckets;
+            do {
+                buckets = transactionTemplate.execute(status -> jdbcTemplate.update(SQL_AGREGAR, tamanoLote));
+            } while (buckets != null && buckets > 0);
+        } catch (RuntimeException e) {
+            log.error("Fallo al agregar movimientos del diario de stock; se reintentará", e);
+        } finally {
+            agregacion.unlock();
+        }
+    }
+
+    /**
+     * Crea por adelantado las particiones del mes actual y el siguiente. Si la partición por
+     * defecto ya tiene filas de ese mes, la creación falla y esas filas quedan en ella.
+     */
+    @Scheduled(cron = "${inventario.diario-stock.cron-particiones:0 0 2 * * *}")
+    public void crearParticiones() {
+        if (!habilitado) {
+            return;
+        }
+        YearMonth actual = YearMonth.now(ZoneOffset.UTC);
+        for (YearMonth mes : List.of(actual, actual.plusMonths(1))) {
+            Instant desde = mes.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            Instant hasta = mes.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            try {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS movimientos_stock_" + SUFIJO_PARTICION.format(mes)
+                        + " PARTITION OF movimientos_stock FOR VALUES FROM ('" + desde + "') TO ('" + hasta + "')");
+            } catch (DataAccessException e) {
+                log.warn("No se pudo crear la partición del diario de stock para {}", mes, e);
+            }
+        }
+    }
+
+    public enum Granularidad {
+        HORA("hour", Duration.ofDays(31)),
+        DIA("day", Duration.ofDays(366));
+
+        private final String unidad;
+        private final Duration rangoMaximo;
+
+        Granularidad(String unidad, Duration rangoMaximo) {
+            this.unidad = unidad;
+            this.rangoMaximo = rangoMaximo;
+        }
+
+        public Duration getRangoMaximo() {
+            return rangoMaximo;
+        }
+
+        public static Granularidad desde(String valor) {
+            if (valor == null || valor.isBlank()) {
+                return HORA;
+            }
+            return switch (valor.trim().toLowerCase(Locale.ROOT)) {
+                case "hora" -> HORA;
+                case "dia", "día" -> DIA;
+                default -> throw new InvalidRequestException("granularidad", "debe ser 'hora' o 'dia'");
+            };
+        }
+    }
+
+    enum Origen {
+        AUMENTO((short) 0),
+        DISMINUCION((short) 1),
+        CAMBIO_ESTADO((short) 2);
+
+        private final short codigo;
+
+        Origen(short codigo) {
+            this.codigo = codigo;
+        }
+    }
+
+    /**
+     * Un movimiento: {@code cantidad} es positiva para las entradas y negativa para las salidas
+     * (también las de un paso a agotado); {@code costoUnitario} solo se informa en las entradas.
+     */
+    record Movimiento(Integer idProducto, Origen origen, int cantidad, BigDecimal costoUnitario, int stockResultante,
+            EstadoProducto estadoAnterior, EstadoProducto estadoNuevo) {
+
+        static Movimiento entre(Origen origen, Producto anterior, Producto actual, BigDecimal costoUnitario) {
+            return new Movimiento(actual.getIdProducto(), origen, actual.getStockActual() - anterior.getStockActual(),
+                    costoUnitario, actual.getStockActual(), anterior.getEstadoProducto(), actual.getEstadoProducto());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.gestorproductos.inventario.service;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Escribe registros CSV citando solo los campos que lo necesitan.
+ */
+final class EscritorCsv {
+
+    private final Writer salida;
+
+    EscritorCsv(Writer salida) {
+        this.salida = salida;
+    }
+
+    void escribirRegistro(Object... campos) throws IOException {
+        for (int i = 0; i < campos.length; i++) {
+            if (i > 0) {
+                salida.write(',');
+            }
+            if (campos[i] != null) {
+                escribirCampo(campos[i].toString());
+            }
+        }
+        salida.write("\r\n");
+    }
+
+    private void escribirCampo(String valor) throws IOException {
+        boolean citar = false;
+        for (int i = 0; i < valor.length() && !citar; i++) {
+            char c = valor.charAt(i);
+            citar = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!citar) {
+            salida.write(valor);
+            return;
+        }
+        salida.write('"');
+        salida.write(valor.replace("\"", "\"\""));
+        salida.write('"');
+    }
+}
@@ -0,0 +1,378 @@
+package com.gestorproductos.inventario.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.message.IpcOption;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestorproductos.inventario.dto.ManifiestoSnapshot;
+import com.gestorproductos.inventario.exception.InvalidRequestException;
+import com.gestorproductos.inventario.model.EventoOutbox;
+import com.gestorproductos.inventario.model.Producto;
+import com.gestorproductos.inventario.repository.ProductoJdbcRepository;
+
+/**
+ * Snapshots del catálogo en archivos Arrow IPC (Feather v2) con compresión ZSTD, escritos por
+ * lotes desde un cursor.
+ *
+ * <p>El incremental toma las filas con eventos de outbox posteriores a la posición que cerró el
+ * anterior; la posición y las filas se leen en la misma transacción REPEATABLE READ. Si la
+ * limpieza ya borró eventos de ese rango, se genera uno completo.
+ */
+@Component
+public class ExportadorSnapshots {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportadorSnapshots.class);
+
+    private static final String PREFIJO_MANIFIESTO = "snapshot-";
+
+    private static final String SQL_CATEGORIAS = "SELECT id_categoria, nombre_categoria, descripcion, version "
+            + "FROM categorias_producto ORDER BY id_categoria";
+    // Las categorías eliminadas no tienen fila: salen con solo el id y marcadas como eliminadas.
+    private static final String SQL_CATEGORIAS_MODIFICADAS = "SELECT m.id_entidad AS id_categoria, "
+            + "c.nombre_categoria, c.descripcion, c.version FROM (SELECT DISTINCT id_entidad FROM outbox_eventos "
+            + "WHERE entidad = '" + EventoOutbox.ENTIDAD_CATEGORIA + "' AND posicion > ? AND posicion <= ?) m "
+            + "LEFT JOIN categorias_producto c ON c.id_categoria = m.id_entidad ORDER BY m.id_entidad";
+    private static final String SQL_ULTIMA_POSICION = "SELECT ultima_posicion FROM outbox_posicion";
+    private static final String SQL_PRIMERA_POSICION = "SELECT MIN(posicion) FROM outbox_eventos";
+
+    private static final Schema ESQUEMA_PRODUCTOS = new Schema(List.of(
+            Field.notNullable("id_producto", new ArrowType.Int(32, true)),
+            Field.notNullable("nombre_producto", ArrowType.Utf8.INSTANCE),
+            Field.nullable("descripcion", ArrowType.Utf8.INSTANCE),
+            Field.notNullable("precio_venta", new ArrowType.Decimal(10, 2, 128)),
+            Field.nullable("costo_compra", new ArrowType.Decimal(10, 2, 128)),
+            Field.notNullable("stock_actual", new ArrowType.Int(32, true)),
+            Field.notNullable("estado_producto", ArrowType.Utf8.INSTANCE),
+            Field.notNullable("version", new ArrowType.Int(64, true))));
+
+    private static final Schema ESQUEMA_CATEGORIAS = new Schema(List.of(
+            Field.notNullable("id_categoria", new ArrowType.Int(32, true)),
+            Field.nullable("nombre_categoria", ArrowType.Utf8.INSTANCE),
+            Field.nullable("descripcion", ArrowType.Utf8.INSTANCE),
+            Field.nullable("version", new ArrowType.Int(64, true)),
+            Field.notNullable("eliminada", ArrowType.Bool.INSTANCE)));
+
+    private final ProductoJdbcRepository productoJdbcRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final StockLedger stockLedger;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate lectura;
+    private final Path directorio;
+    private final int filasPorLote;
+    private final ReentrantLock bloqueo = new ReentrantLock();
+
+    public ExportadorSnapshots(ProductoJdbcRepository productoJdbcRepository, JdbcTemplate jdbcTemplate,
+            StockLedger stockLedger, ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+            @Value("${inventario.snapshots.directorio:./data/snapshots}") String directorio,
+            @Value("${inventario.snapshots.filas-por-lote:65536}") int filasPorLote) {
+        this.productoJdbcRepository = productoJdbcRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.stockLedger = stockLedger;
+        this.objectMapper = objectMapper;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.lectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.directorio = Paths.get(directorio);
+        this.filasPorLote = Math.max(filasPorLote, 1);
+    }
+
+    @Scheduled(cron = "${inventario.snapshots.cron:-}")
+    public void exportarProgramado() {
+        try {
+            ManifiestoSnapshot manifiesto = exportar(ManifiestoSnapshot.TIPO_INCREMENTAL);
+            log.info("Snapshot {} ({}) del catálogo escrito en {}", manifiesto.numero(), manifiesto.tipo(),
+                    directorio);
+        } catch (RuntimeException e) {
+            log.error("Fallo al exportar el snapshot del catálogo", e);
+        }
+    }
+
+    /**
+     * Escribe un snapshot nuevo. Uno incremental sin snapshot previo, o con eventos del outbox ya
+     * eliminados desde entonces, se escribe como completo.
+     */
+    public ManifiestoSnapshot exportar(String tipo) {
+        if (!ManifiestoSnapshot.TIPO_COMPLETO.equals(tipo) && !ManifiestoSnapshot.TIPO_INCREMENTAL.equals(tipo)) {
+            throw new InvalidRequestException("tipo", "debe ser 'completo' o 'incremental'");
+        }
+        bloqueo.lock();
+        try {
+            Files.createDirectories(directorio);
+            // Los deltas pendientes del libro de stock todavía no están en la tabla.
+            stockLedger.volcarPendientes();
+            ManifiestoSnapshot anterior = ultimo();
+            ManifiestoSnapshot manifiesto;
+            // El asignador de Arrow se crea por exportación: sus buffers se liberan al terminar.
+            try (BufferAllocator asignador = new RootAllocator()) {
+                manifiesto = lectura.execute(status -> escribir(tipo, anterior, asignador));
+            }
+            Path destino = directorio.resolve(nombreManifiesto(manifiesto.numero()));
+            Path temporal = directorio.resolve(destino.getFileName() + ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(temporal.toFile(), manifiesto);
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+            return manifiesto;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el snapshot del catálogo", e);
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * Manifiestos escritos, del más reciente al más antiguo.
+     */
+    public List<ManifiestoSnapshot> listar() {
+        List<ManifiestoSnapshot> manifiestos = new ArrayList<>();
+        if (!Files.isDirectory(directorio)) {
+            return manifiestos;
+        }
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, PREFIJO_MANIFIESTO + "*.json")) {
+            for (Path archivo : archivos) {
+                manifiestos.add(objectMapper.readValue(archivo.toFile(), ManifiestoSnapshot.class));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron leer los manifiestos de snapshots", e);
+        }
+        manifiestos.sort(Comparator.comparingLong(ManifiestoSnapshot::numero).reversed());
+        return manifiestos;
+    }
+
+    private ManifiestoSnapshot ultimo() {
+        List<ManifiestoSnapshot> manifiestos = listar();
+        return manifiestos.isEmpty() ? null : manifiestos.get(0);
+    }
+
+    private ManifiestoSnapshot escribir(String tipoPedido, ManifiestoSnapshot anterior, BufferAllocator asignador) {
+        long hasta = jdbcTemplate.queryForObject(SQL_ULTIMA_POSICION, Long.class);
+        boolean incremental = ManifiestoSnapshot.TIPO_INCREMENTAL.equals(tipoPedido) && anterior != null
+                && eventosConservados(anterior.posicionHasta(), hasta);
+        long numero = anterior != null ? anterior.numero() + 1 : 1;
+        long desde = incremental ? anterior.posicionHasta() : 0;
+        String tipo = incremental ? ManifiestoSnapshot.TIPO_INCREMENTAL : ManifiestoSnapshot.TIPO_COMPLETO;
+        Map<String, String> metadatos = Map.of("tipo", tipo, "posicion_desde", Long.toString(desde),
+                "posicion_hasta", Long.toString(hasta));
+
+        List<ManifiestoSnapshot.Archivo> archivos = new ArrayList<>(2);
+        archivos.add(escribirTabla("productos", numero, ESQUEMA_PRODUCTOS, metadatos, asignador, escritor -> {
+            if (incremental) {
+                productoJdbcRepository.recorrerModificados(desde, hasta, producto -> agregarProducto(escritor, producto));
+            } else {
+                productoJdbcRepository.recorrerTodos(producto -> agregarProducto(escritor, producto));
+            }
+        }));
+        archivos.add(escribirTabla("categorias_producto", numero, ESQUEMA_CATEGORIAS, metadatos, asignador, escritor -> {
+            if (incremental) {
+                jdbcTemplate.query(SQL_CATEGORIAS_MODIFICADAS, rs -> {
+                    agregarCategoria(escritor, rs);
+                }, desde, hasta);
+            } else {
+                jdbcTemplate.query(SQL_CATEGORIAS, rs -> {
+                    agregarCategoria(escritor, rs);
+                });
+            }
+        }));
+        return new ManifiestoSnapshot(numero, tipo, incremental ? anterior.numero() : null, desde, hasta,
+                Instant.now(), archivos);
+    }
+
+    private boolean eventosConservados(long desde, long hasta) {
+        if (hasta <= desde) {
+            return true;
+        }
+        Long primera = jdbcTemplate.queryForObject(SQL_PRIMERA_POSICION, Long.class);
+        return primera != null && primera <= desde + 1;
+    }
+
+    private ManifiestoSnapshot.Archivo escribirTabla(String tabla, long numero, Schema esquema,
+            Map<String, String> metadatos, BufferAllocator asignador, Recorrido recorrido) {
+        String nombre = tabla + "-" + String.format("%06d", numero) + ".arrow";
+        Path destino = directorio.resolve(nombre);
+        Path temporal = directorio.resolve(nombre + ".tmp");
+        long filas;
+        try (EscritorArrow escritor = new EscritorArrow(esquema, metadatos, asignador, temporal)) {
+            recorrido.recorrer(escritor);
+            filas = escritor.terminar();
+        } catch (IOException e) {
+            borrarTemporal(temporal);
+            throw new UncheckedIOException("No se pudo escribir " + nombre, e);
+        } catch (RuntimeException e) {
+            borrarTemporal(temporal);
+            throw e;
+        }
+        try {
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+            return new ManifiestoSnapshot.Archivo(nombre, tabla, filas, Files.size(destino));
+        } catch (IOException e) {
+            borrarTemporal(temporal);
+            throw new UncheckedIOException("No se pudo escribir " + nombre, e);
+        }
+    }
+
+    private static void borrarTemporal(Path temporal) {
+        try {
+            Files.deleteIfExists(temporal);
+        } catch (IOException e) {
+            log.warn("No se pudo eliminar el archivo temporal {}", temporal, e);
+        }
+    }
+
+    private static void agregarProducto(EscritorArrow escritor, Producto producto) {
+        VectorSchemaRoot raiz = escritor.raiz;
+        int fila = escritor.fila;
+        ((IntVector) raiz.getVector(0)).setSafe(fila, producto.getIdProducto());
+        texto((VarCharVector) raiz.getVector(1), fila, producto.getNombreProducto());
+        texto((VarCharVector) raiz.getVector(2), fila, producto.getDescripcion());
+        importe((DecimalVector) raiz.getVector(3), fila, producto.getPrecioVenta());
+        importe((DecimalVector) raiz.getVector(4), fila, producto.getCostoCompra());
+        ((IntVector) raiz.getVector(5)).setSafe(fila, producto.getStockActual());
+        texto((VarCharVector) raiz.getVector(6), fila, producto.getEstadoProducto().getEtiqueta());
+        ((BigIntVector) raiz.getVector(7)).setSafe(fila, producto.getVersion());
+        escritor.avanzar();
+    }
+
+    private static void agregarCategoria(EscritorArrow escritor, ResultSet rs) throws SQLException {
+        VectorSchemaRoot raiz = escritor.raiz;
+        int fila = escritor.fila;
+        long version = rs.getLong("version");
+        boolean eliminada = rs.wasNull();
+        ((IntVector) raiz.getVector(0)).setSafe(fila, rs.getInt("id_categoria"));
+        texto((VarCharVector) raiz.getVector(1), fila, rs.getString("nombre_categoria"));
+        texto((VarCharVector) raiz.getVector(2), fila, rs.getString("descripcion"));
+        if (eliminada) {
+            ((BigIntVector) raiz.getVector(3)).setNull(fila);
+        } else {
+            ((BigIntVector) raiz.getVector(3)).setSafe(fila, version);
+        }
+        ((BitVector) raiz.getVector(4)).setSafe(fila, eliminada ? 1 : 0);
+        escritor.avanzar();
+    }
+
+    private static void texto(VarCharVector vector, int fila, String valor) {
+        if (valor == null) {
+            vector.setNull(fila);
+        } else {
+            vector.setSafe(fila, valor.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void importe(DecimalVector vector, int fila, BigDecimal valor) {
+        if (valor == null) {
+            vector.setNull(fila);
+        } else {
+            vector.setSafe(fila, valor.setScale(vector.getScale(), RoundingMode.HALF_UP));
+        }
+    }
+
+    private static String nombreManifiesto(long numero) {
+        return PREFIJO_MANIFIESTO + String.format("%06d", numero) + ".json";
+    }
+
+    @FunctionalInterface
+    private interface Recorrido {
+        void recorrer(EscritorArrow escritor);
+    }
+
+    /**
+     * Archivo Arrow en escritura: las filas se cargan en los vectores de {@code raiz} y cada
+     * {@code filasPorLote} se escriben como un lote comprimido.
+     */
+    private final class EscritorArrow implements AutoCloseable {
+
+        private final VectorSchemaRoot raiz;
+        private final FileChannel canal;
+        private final ArrowFileWriter escritor;
+        private int fila;
+        private long filas;
+
+        EscritorArrow(Schema esquema, Map<String, String> metadatos, BufferAllocator asignador, Path archivo)
+                throws IOException {
+            this.raiz = VectorSchemaRoot.create(esquema, asignador);
+            this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            this.escritor = new ArrowFileWriter(raiz, null, canal, metadatos, IpcOption.DEFAULT,
+                    CommonsCompressionFactory.INSTANCE, CompressionUtil.CodecType.ZSTD);
+            this.escritor.start();
+            this.raiz.allocateNew();
+        }
+
+        void avanzar() {
+            fila++;
+            if (fila == filasPorLote) {
+                try {
+                    escribirLote();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        long terminar() throws IOException {
+            if (fila > 0) {
+                escribirLote();
+            }
+            escritor.end();
+            return filas;
+        }
+
+        private void escribirLote() throws IOException {
+            raiz.setRowCount(fila);
+            escritor.writeBatch();
+            filas += fila;
+            fila = 0;
+            raiz.allocateNew();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                escritor.close();
+            } finally {
+                raiz.close();
+                canal.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.gestorproductos.inventario.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gestorproductos.inventario.event.ProductoModificadoEvent;
+import com.gestorproductos.inventario.model.EstadoProducto;
+import com.gestorproductos.inventario.model.Producto;
+import com.gestorproductos.inventario.repository.ProductoJdbcRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Índice invertido en memoria sobre {@code nombreProducto} y {@code descripcion}. Los términos
+ * se normalizan sin tildes ni mayúsculas y se descartan las palabras vacías del español.
+ *
+ * <p>Los términos viven en un mapa ordenado, así que buscar por prefijo (autocompletado) es un
+ * recorrido de rango. Cada término de la consulta debe coincidir por prefijo con algún término
+ * del producto; la relevancia suma, por término de la consulta, el peso del campo (el nombre
+ * pesa más que la descripción) por su IDF, con bonificación para la coincidencia exacta. Los
+ * términos de menos de {@value #LONGITUD_MINIMA_PREFIJO} caracteres solo coinciden exactos, y
+ * un prefijo se expande a lo sumo a {@value #MAXIMO_TERMINOS_PREFIJO} términos.
+ *
+ * <p>Por producto se guardan solo el estado, la versión y los términos indexados; las
+ * coincidencias se devuelven por id. Un cambio que no toca nombre, descripción ni estado (como
+ * los de stock) no modifica el índice.
+ */
+@Component
+public class IndiceBusqueda {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> PALABRAS_VACIAS = Set.of("a", "al", "con", "de", "del", "e", "el", "en",
+            "la", "las", "lo", "los", "o", "para", "por", "se", "sin", "su", "sus", "u", "un", "una", "unas",
+            "unos", "y");
+
+    private static final int PESO_NOMBRE = 3;
+    private static final int PESO_DESCRIPCION = 1;
+    private static final double FACTOR_PREFIJO = 0.5;
+    static final int LONGITUD_MINIMA_PREFIJO = 3;
+    static final int MAXIMO_TERMINOS_PREFIJO = 200;
+
+    private final ProductoJdbcRepository productoJdbcRepository;
+    private final TransactionTemplate lectura;
+
+    // término -> (id de producto -> peso del término en el producto)
+    private final ConcurrentSkipListMap<String, Map<Integer, Integer>> terminos = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Documento> documentos = new ConcurrentHashMap<>();
+
+    public IndiceBusqueda(ProductoJdbcRepository productoJdbcRepository,
+            PlatformTransactionManager transactionManager) {
+        this.productoJdbcRepository = productoJdbcRepository;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void cargar() {
+        // Dentro de una transacción para que el cursor respete el fetch size.
+        lectura.executeWithoutResult(status -> productoJdbcRepository.recorrerTodos(this::indexar));
+    }
+
+    public List<Coincidencia> buscar(String consulta, EstadoProducto estado, int limite) {
+        // El último término de la consulta se conserva aunque sea una palabra vacía: en el
+        // autocompletado suele ser el comienzo de otra palabra ("con" -> "conserva").
+        List<String> tokens = tokenizar(consulta, true);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        double total = Math.max(documentos.size(), 1);
+        Map<Integer, Double> puntuaciones = null;
+        for (String token : tokens) {
+            Map<Integer, Double> delToken = new HashMap<>();
+            for (Map.Entry<String, Map<Integer, Integer>> termino : expandir(token)) {
+                Map<Integer, Integer> postings = termino.getValue();
+                if (postings.isEmpty()) {
+                    continue;
+                }
+                double idf = Math.log(1 + total / postings.size());
+                double factor = termino.getKey().length() == token.length() ? 1.0 : FACTOR_PREFIJO;
+                postings.forEach((id, peso) -> delToken.merge(id, peso * idf * factor, Math::max));
+            }
+            if (puntuaciones == null) {
+                puntuaciones = delToken;
+            } else {
+                // Todos los términos de la consulta deben coincidir.
+                Map<Integer, Double> anteriores = puntuaciones;
+                puntuaciones = new HashMap<>();
+                for (Map.Entry<Integer, Double> entrada : delToken.entrySet()) {
+                    Double acumulada = anteriores.get(entrada.getKey());
+                    if (acumulada != null) {
+                        puntuaciones.put(entrada.getKey(), acumulada + entrada.getValue());
+                    }
+                }
+            }
+            if (puntuaciones.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<Coincidencia> resultados = new ArrayList<>();
+        for (Map.Entry<Integer, Double> entrada : puntuaciones.entrySet()) {
+            Documento documento = documentos.get(entrada.getKey());
+            if (documento != null && (estado == null || documento.estado() == estado)) {
+                resultados.add(new Coincidencia(entrada.getKey(), entrada.getValue()));
+            }
+        }
+        resultados.sort(Comparator.comparingDouble(Coincidencia::relevancia).reversed()
+                .thenComparing(Coincidencia::idProducto));
+        return resultados.size() > limite ? new ArrayList<>(resultados.subList(0, limite)) : resultados;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void alModificarProducto(ProductoModificadoEvent evento) {
+        Producto anterior = evento.anterior();
+        Producto actual = evento.actual();
+        if (anterior != null && documentos.containsKey(evento.idProducto())
+                && Objects.equals(anterior.getNombreProducto(), actual.getNombreProducto())
+                && Objects.equals(anterior.getDescripcion(), actual.getDescripcion())) {
+            if (anterior.getEstadoProducto() != actual.getEstadoProducto()) {
+                cambiarEstado(actual);
+            }
+            return;
+        }
+        indexar(actual);
+    }
+
+    private void cambiarEstado(Producto producto) {
+        documentos.computeIfPresent(producto.getIdProducto(), (id, actual) -> esMasReciente(producto, actual)
+                ? new Documento(producto.getEstadoProducto(), producto.getVersion(), producto.getSecuenciaLibro(),
+                        actual.pesos())
+                : actual);
+    }
+
+    private void indexar(Producto producto) {
+        documentos.compute(producto.getIdProducto(), (id, actual) -> {
+            if (actual != null && !esMasReciente(producto, actual)) {
+                return actual;
+            }
+            Map<String, Integer> pesos = pesos(producto);
+            if (actual != null) {
+                // Los términos que quedan sin productos no se quitan del mapa: retirarlos
+                // competiría con un alta concurrente del mismo término.
+                actual.pesos().forEach((termino, peso) -> {
+                    if (!pesos.containsKey(termino)) {
+                        Map<Integer, Integer> postings = terminos.get(termino);
+                        if (postings != null) {
+                            postings.remove(id);
+                        }
+                    }
+                });
+            }
+            pesos.forEach((termino, peso) -> terminos
+                    .computeIfAbsent(termino, t -> new ConcurrentHashMap<>())
+                    .put(id, peso));
+            return new Documento(producto.getEstadoProducto(), producto.getVersion(), producto.getSecuenciaLibro(),
+                    pesos);
+        });
+    }
+
+    private Iterable<Map.Entry<String, Map<Integer, Integer>>> expandir(String token) {
+        if (token.length() < LONGITUD_MINIMA_PREFIJO) {
+            Map<Integer, Integer> postings = terminos.get(token);
+            return postings == null ? List.of() : List.of(Map.entry(token, postings));
+        }
+        return () -> terminos.subMap(token, true, token + Character.MAX_VALUE, false).entrySet().stream()
+                .limit(MAXIMO_TERMINOS_PREFIJO)
+                .iterator();
+    }
+
+    private static boolean esMasReciente(Producto nuevo, Documento actual) {
+        return VersionesProducto.esMasReciente(nuevo.getVersion(), nuevo.getSecuenciaLibro(), actual.version(),
+                actual.secuenciaLibro());
+    }
+
+    private static Map<String, Integer> pesos(Producto producto) {
+        Map<String, Integer> pesos = new HashMap<>();
+        for (String termino : tokenizar(producto.getNombreProducto(), false)) {
+            pesos.merge(termino, PESO_NOMBRE, Integer::sum);
+        }
+        for (String termino : tokenizar(producto.getDescripcion(), false)) {
+            pesos.merge(termino, PESO_DESCRIPCION, Integer::sum);
+        }
+        return pesos;
+    }
+
+    private static List<String> tokenizar(String texto, boolean conservarUltimo) {
+        if (texto == null || texto.isBlank()) {
+            return List.of();
+        }
+        String normalizado = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        String[] partes = SEPARADORES.split(normalizado);
+        List<String> tokens = new ArrayList<>(partes.length);
+        for (int i = 0; i < partes.length; i++) {
+            String token = partes[i];
+            boolean ultimo = conservarUltimo && i == partes.length - 1;
+            if (!token.isEmpty() && (ultimo || !PALABRAS_VACIAS.contains(token))) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private record Documento(EstadoProducto estado, Long version, long secuenciaLibro, Map<String, Integer> pesos) {
+    }
+
+    public record Coincidencia(Integer idProducto, double relevancia) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.gestorproductos.inventario.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gestorproductos.inventario.event.ProductoModificadoEvent;
+import com.gestorproductos.inventario.model.Producto;
+import com.gestorproductos.inventario.repository.ProductoJdbcRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Índice en memoria de ids de producto ordenados por {@code stockActual} y luego por id. La
+ * consulta "stock menor que N" es un recorrido de rango sobre la cabeza del índice en lugar de
+ * un barrido de la tabla; los datos de los productos se cargan aparte, solo los del rango.
+ *
+ * <p>La clave combina stock (32 bits altos) e id (32 bits bajos) en un {@code long}, así que el
+ * orden natural de la clave es el orden del índice.
+ */
+@Component
+public class IndiceStockBajo {
+
+    private final ProductoJdbcRepository productoJdbcRepository;
+    private final TransactionTemplate lectura;
+
+    private final ConcurrentSkipListSet<Long> porStock = new ConcurrentSkipListSet<>();
+    private final Map<Integer, Entrada> porId = new ConcurrentHashMap<>();
+
+    public IndiceStockBajo(ProductoJdbcRepository productoJdbcRepository,
+            PlatformTransactionManager transactionManager) {
+        this.productoJdbcRepository = productoJdbcRepository;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void cargar() {
+        // Dentro de una transacción para que el cursor respete el fetch size.
+        lectura.executeWithoutResult(status -> productoJdbcRepository.recorrerTodos(this::actualizar));
+    }
+
+    /** Ids de los productos con stock estrictamente menor que {@code limite}, de menor a mayor stock. */
+    public List<Integer> conStockMenorQue(int limite) {
+        List<Integer> ids = new ArrayList<>();
+        for (long clave : porStock.headSet((long) limite << 32)) {
+            ids.add((int) clave);
+        }
+        return ids;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void alModificarProducto(ProductoModificadoEvent evento) {
+        actualizar(evento.actual());
+    }
+
+    private void actualizar(Producto producto) {
+        // compute serializa las actualizaciones de un mismo id, de modo que la clave del
+        // conjunto ordenado y la entrada de porId nunca quedan desalineadas.
+        porId.compute(producto.getIdProducto(), (id, actual) -> {
+            if (actual != null && !VersionesProducto.esMasReciente(producto.getVersion(),
+                    producto.getSecuenciaLibro(), actual.version(), actual.secuenciaLibro())) {
+                return actual;
+            }
+            if (actual != null) {
+                porStock.remove(clave(actual.stock(), id));
+            }
+            porStock.add(clave(producto.getStockActual(), id));
+            return new Entrada(producto.getStockActual(), producto.getVersion(), producto.getSecuenciaLibro());
+        });
+    }
+
+    private static long clave(int stock, int idProducto) {
+        return ((long) stock << 32) | (idProducto & 0xFFFFFFFFL);
+    }
+
+    private record Entrada(int stock, Long version, long secuenciaLibro) {
+    }
+}
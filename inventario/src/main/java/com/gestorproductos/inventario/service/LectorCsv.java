@@ -0,0 +1,82 @@
+package com.gestorproductos.inventario.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector CSV incremental (RFC 4180): separador coma, comillas dobles para campos con comas,
+ * saltos de línea o comillas, y {@code ""} como comilla escapada. Lee un registro por vez, así
+ * que nunca retiene el archivo completo.
+ */
+final class LectorCsv {
+
+    private final Reader entrada;
+    private final StringBuilder campo = new StringBuilder();
+    private int siguiente = -2;
+
+    LectorCsv(Reader entrada) {
+        this.entrada = entrada;
+    }
+
+    /** Devuelve el próximo registro o {@code null} al llegar al final. */
+    List<String> leerRegistro() throws IOException {
+        int c = leer();
+        if (c == -1) {
+            return null;
+        }
+        List<String> campos = new ArrayList<>();
+        campo.setLength(0);
+        boolean entreComillas = false;
+        while (true) {
+            if (entreComillas) {
+                if (c == -1) {
+                    throw new IOException("Campo entre comillas sin cerrar al final del archivo");
+                }
+                if (c == '"') {
+                    int despues = leer();
+                    if (despues == '"') {
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        c = despues;
+                        continue;
+                    }
+                } else {
+                    campo.append((char) c);
+                }
+            } else if (c == '"' && campo.isEmpty()) {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int despues = leer();
+                    if (despues != '\n') {
+                        devolver(despues);
+                    }
+                }
+                campos.add(campo.toString());
+                return campos;
+            } else {
+                campo.append((char) c);
+            }
+            c = leer();
+        }
+    }
+
+    private int leer() throws IOException {
+        if (siguiente != -2) {
+            int c = siguiente;
+            siguiente = -2;
+            return c;
+        }
+        return entrada.read();
+    }
+
+    private void devolver(int c) {
+        siguiente = c;
+    }
+}
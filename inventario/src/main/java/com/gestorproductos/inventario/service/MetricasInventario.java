@@ -0,0 +1,66 @@
+package com.gestorproductos.inventario.service;
+
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import com.gestorproductos.inventario.exception.InsufficientStockException;
+import com.gestorproductos.inventario.exception.InvalidProductStateException;
+import com.gestorproductos.inventario.exception.InvalidRequestException;
+import com.gestorproductos.inventario.model.EstadoProducto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Contadores de rechazos y gauges del estado del inventario. Los gauges leen los totales que
+ * mantiene {@link AgregadosInventario}, sin consultar la base de datos en cada scrape.
+ */
+@Component
+public class MetricasInventario {
+
+    private final MeterRegistry meterRegistry;
+    private final Counter conflictosVersion;
+    private final Counter stockInsuficiente;
+
+    public MetricasInventario(MeterRegistry meterRegistry, AgregadosInventario agregadosInventario) {
+        this.meterRegistry = meterRegistry;
+        this.conflictosVersion = Counter.builder("inventario.conflictos.version")
+                .description("Escrituras rechazadas por bloqueo optimista (@Version)")
+                .register(meterRegistry);
+        this.stockInsuficiente = Counter.builder("inventario.stock.insuficiente")
+                .description("Disminuciones de stock rechazadas por stock insuficiente")
+                .register(meterRegistry);
+
+        Gauge.builder("inventario.stock.unidades", agregadosInventario, AgregadosInventario::unidades)
+                .description("Unidades totales en stock")
+                .register(meterRegistry);
+        for (EstadoProducto estado : EstadoProducto.values()) {
+            Gauge.builder("inventario.productos", agregadosInventario, a -> a.productos(estado))
+                    .description("Cantidad de productos por estado")
+                    .tag("estado", estado.getEtiqueta())
+                    .register(meterRegistry);
+        }
+    }
+
+    public void registrarRechazo(RuntimeException excepcion) {
+        if (excepcion instanceof InsufficientStockException) {
+            stockInsuficiente.increment();
+        } else if (excepcion instanceof ObjectOptimisticLockingFailureException) {
+            conflictosVersion.increment();
+        } else if (excepcion instanceof InvalidRequestException invalida) {
+            registrarValidacionFallida(invalida.getCampo());
+        } else if (excepcion instanceof InvalidProductStateException) {
+            registrarValidacionFallida("estadoProducto");
+        }
+    }
+
+    private void registrarValidacionFallida(String campo) {
+        Counter.builder("inventario.validacion.fallida")
+                .description("Solicitudes rechazadas por validación")
+                .tag("campo", campo != null ? campo : "desconocido")
+                .register(meterRegistry)
+                .increment();
+    }
+
+}
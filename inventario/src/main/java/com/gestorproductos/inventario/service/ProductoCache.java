@@ -0,0 +1,117 @@
+package com.gestorproductos.inventario.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.gestorproductos.inventario.dto.EstadisticasCache;
+import com.gestorproductos.inventario.event.ProductoModificadoEvent;
+import com.gestorproductos.inventario.model.Producto;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Caché de lectura de instantáneas de {@link Producto} por id. Las escrituras confirmadas
+ * reemplazan la entrada solo si son posteriores según {@link VersionesProducto}, de modo que
+ * una carga concurrente desde la base de datos nunca pisa un cambio más reciente.
+ */
+@Component
+public class ProductoCache {
+
+    private final Cache<Integer, Producto> cache;
+
+    public ProductoCache(MeterRegistry meterRegistry,
+            @Value("${inventario.cache.productos.tamano-maximo:100000}") long tamanoMaximo,
+            @Value("${inventario.cache.productos.ttl:PT5M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productos");
+    }
+
+    /**
+     * Devuelve la instantánea en caché o la carga con {@code cargador}. La carga corre fuera del
+     * mapa, sin retener el bloqueo de la entrada durante la consulta: dos lecturas simultáneas
+     * de un mismo id pueden consultar ambas, y se conserva la versión más reciente.
+     */
+    public Producto obtener(Integer id, Function<Integer, Producto> cargador) {
+        Producto enCache = cache.getIfPresent(id);
+        if (enCache != null) {
+            return enCache;
+        }
+        Producto cargado = cargador.apply(id);
+        if (cargado == null) {
+            return null;
+        }
+        return cache.asMap().merge(id, cargado, ProductoCache::masReciente);
+    }
+
+    /**
+     * Como {@link #obtener} para varios ids: los que faltan se cargan juntos con una sola llamada
+     * a {@code cargador}. Devuelve las instantáneas en el orden de {@code ids}, sin los ids que
+     * no existen.
+     */
+    public List<Producto> obtenerTodos(List<Integer> ids, Function<List<Integer>, List<Producto>> cargador) {
+        Map<Integer, Producto> encontrados = new HashMap<>(cache.getAllPresent(ids));
+        List<Integer> faltantes = new ArrayList<>();
+        for (Integer id : ids) {
+            if (!encontrados.containsKey(id)) {
+                faltantes.add(id);
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            for (Producto cargado : cargador.apply(faltantes)) {
+                encontrados.put(cargado.getIdProducto(),
+                        cache.asMap().merge(cargado.getIdProducto(), cargado, ProductoCache::masReciente));
+            }
+        }
+        List<Producto> resultado = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Producto producto = encontrados.get(id);
+            if (producto != null) {
+                resultado.add(producto);
+            }
+        }
+        return resultado;
+    }
+
+    public Producto obtenerSiPresente(Integer id) {
+        return cache.getIfPresent(id);
+    }
+
+    public void actualizar(Producto producto) {
+        cache.asMap().merge(producto.getIdProducto(), producto, ProductoCache::masReciente);
+    }
+
+    public void invalidar(Integer id) {
+        cache.invalidate(id);
+    }
+
+    public EstadisticasCache estadisticas() {
+        CacheStats stats = cache.stats();
+        return new EstadisticasCache(stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate(),
+                cache.estimatedSize());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void alModificarProducto(ProductoModificadoEvent evento) {
+        actualizar(evento.actual());
+    }
+
+    private static Producto masReciente(Producto actual, Producto nuevo) {
+        return VersionesProducto.esMasReciente(nuevo, actual) ? nuevo : actual;
+    }
+}
@@ -1,38 +1,162 @@
 package com.gestorproductos.inventario.service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.gestorproductos.inventario.dto.DisponibilidadStock;
+import com.gestorproductos.inventario.dto.EstadisticasCache;
+import com.gestorproductos.inventario.dto.MovimientoStock;
+import com.gestorproductos.inventario.dto.PaginaProductos;
+import com.gestorproductos.inventario.dto.PaginaVistas;
+import com.gestorproductos.inventario.dto.ProductoVista;
+import com.gestorproductos.inventario.dto.ReservaStock;
+import com.gestorproductos.inventario.dto.ResumenMovimientos;
+import com.gestorproductos.inventario.dto.ResultadoBusqueda;
+import com.gestorproductos.inventario.dto.ResultadoMovimiento;
+import com.gestorproductos.inventario.dto.ValoracionInventario;
+import com.gestorproductos.inventario.dto.VersionProducto;
+import com.gestorproductos.inventario.event.ProductoModificadoEvent;
 import com.gestorproductos.inventario.exception.InsufficientStockException;
 import com.gestorproductos.inventario.exception.InvalidProductStateException;
 import com.gestorproductos.inventario.exception.InvalidRequestException;
 import com.gestorproductos.inventario.exception.NotFoundException;
+import com.gestorproductos.inventario.exception.PreconditionFailedException;
+import com.gestorproductos.inventario.model.EstadoProducto;
 import com.gestorproductos.inventario.model.Producto;
+import com.gestorproductos.inventario.repository.ProductoJdbcRepository;
 import com.gestorproductos.inventario.repository.ProductoRepository;
 
+import io.micrometer.core.annotation.Timed;
+
 @Service
 @Transactional
+@Timed(value = "inventario.servicio", histogram = true)
 public class ProductoService {
 
     private final ProductoRepository productoRepository;
-    private static final BigDecimal MARGEN_GANANCIA = new BigDecimal("0.25");
-
-    public ProductoService(ProductoRepository productoRepository) {
+    private final ProductoJdbcRepository productoJdbcRepository;
+    private final StockLedger stockLedger;
+    private final ProductoCache productoCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MetricasInventario metricasInventario;
+    private final AgregadosInventario agregadosInventario;
+    private final IndiceStockBajo indiceStockBajo;
+    private final AlertasStockBajo alertasStockBajo;
+    private final IndiceBusqueda indiceBusqueda;
+    private final ReservasStock reservasStock;
+    private final CacheSegundoNivel cacheSegundoNivel;
+    private final DiarioStock diarioStock;
+    private final boolean decrementoAtomico;
+    private static final int LIMITE_MAXIMO_PAGINA = 1000;
+    private static final int LIMITE_MAXIMO_BUSQUEDA = 100;
+
+    public ProductoService(ProductoRepository productoRepository, ProductoJdbcRepository productoJdbcRepository,
+            StockLedger stockLedger, ProductoCache productoCache, ApplicationEventPublisher eventPublisher,
+            MetricasInventario metricasInventario, AgregadosInventario agregadosInventario,
+            IndiceStockBajo indiceStockBajo, AlertasStockBajo alertasStockBajo, IndiceBusqueda indiceBusqueda,
+            ReservasStock reservasStock, CacheSegundoNivel cacheSegundoNivel, DiarioStock diarioStock,
+            @Value("${inventario.stock.decremento-atomico:false}") boolean decrementoAtomico) {
         this.productoRepository = productoRepository;
+        this.productoJdbcRepository = productoJdbcRepository;
+        this.stockLedger = stockLedger;
+        this.productoCache = productoCache;
+        this.eventPublisher = eventPublisher;
+        this.metricasInventario = metricasInventario;
+        this.agregadosInventario = agregadosInventario;
+        this.indiceStockBajo = indiceStockBajo;
+        this.alertasStockBajo = alertasStockBajo;
+        this.indiceBusqueda = indiceBusqueda;
+        this.reservasStock = reservasStock;
+        this.cacheSegundoNivel = cacheSegundoNivel;
+        this.diarioStock = diarioStock;
+        this.decrementoAtomico = decrementoAtomico;
     }
 
     @Transactional(readOnly = true)
     public Producto obtenerPorId(Integer id) {
-        Optional<Producto> producto = productoRepository.findById(id);
-        if (producto.isEmpty()) {
-            throw new NotFoundException("Producto", id.toString());
+        return productoCache.obtener(id, clave -> {
+            Producto cargado = new Producto(buscarEntidad(clave));
+            stockLedger.superponerStockEnMemoria(cargado);
+            return cargado;
+        });
+    }
+
+    /**
+     * Instantáneas de varios productos en el orden de {@code ids}, con una sola consulta para
+     * los que no están en caché.
+     */
+    private List<Producto> obtenerPorIds(List<Integer> ids) {
+        return productoCache.obtenerTodos(ids, faltantes -> {
+            List<Producto> cargados = new ArrayList<>(faltantes.size());
+            for (Producto entidad : productoRepository.findAllById(faltantes)) {
+                Producto cargado = new Producto(entidad);
+                stockLedger.superponerStockEnMemoria(cargado);
+                cargados.add(cargado);
+            }
+            return cargados;
+        });
+    }
+
+    /**
+     * Marca de versión del producto para las validaciones condicionales (ETag). Sale de la misma
+     * instantánea en caché que sirve {@link #obtenerPorId}; si no está, se lee sin cargar la
+     * entidad lo mismo que cargaría esa lectura: la versión de la fila y el stock en memoria.
+     */
+    @Transactional(readOnly = true)
+    public String obtenerMarcaVersion(Integer id) {
+        Producto enCache = productoCache.obtenerSiPresente(id);
+        if (enCache != null) {
+            return marcaVersion(enCache);
         }
-        return producto.get();
+        VersionProducto version = productoRepository.findByIdProducto(id, VersionProducto.class)
+                .orElseThrow(() -> new NotFoundException("Producto", id.toString()));
+        Integer enMemoria = stockLedger.stockEnMemoria(id);
+        return marcaVersion(id, version.version(), enMemoria != null ? enMemoria : version.stockActual());
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String marcaVersion(Producto producto) {
+        return marcaVersion(producto.getIdProducto(), producto.getVersion(), producto.getStockActual());
+    }
+
+    /**
+     * Marca de versión del catálogo completo, calculada sobre las filas confirmadas (ver
+     * {@link ProductoJdbcRepository#obtenerMarcaCatalogo}). Se lee antes que los datos, así que
+     * un listado nunca es más viejo que su marca.
+     */
+    @Transactional(readOnly = true)
+    public String obtenerMarcaCatalogo() {
+        return productoJdbcRepository.obtenerMarcaCatalogo();
+    }
+
+    @Transactional(readOnly = true)
+    public EstadisticasCache obtenerEstadisticasCache() {
+        return productoCache.estadisticas();
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public ValoracionInventario obtenerValoracion() {
+        return agregadosInventario.valoracion();
     }
 
     @Transactional(readOnly = true)
@@ -40,10 +164,81 @@ public class ProductoService {
         return productoRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
+    public PaginaProductos obtenerPagina(Integer despuesDe, Integer limite) {
+        if (limite == null || limite <= 0 || limite > LIMITE_MAXIMO_PAGINA) {
+            throw new InvalidRequestException("limit", "debe estar entre 1 y " + LIMITE_MAXIMO_PAGINA);
+        }
+
+        int cursor = despuesDe != null ? despuesDe : 0;
+        List<Producto> productos = productoRepository.findByIdProductoGreaterThanOrderByIdProductoAsc(cursor,
+                Limit.of(limite + 1));
+
+        if (productos.size() <= limite) {
+            return new PaginaProductos(productos, null);
+        }
+        List<Producto> pagina = productos.subList(0, limite);
+        return new PaginaProductos(pagina, pagina.get(limite - 1).getIdProducto());
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductoVista> obtenerVistas() {
+        return productoRepository.findAllByOrderByIdProductoAsc(ProductoVista.class);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductoVista> obtenerVistasPorEstado(EstadoProducto estado) {
+        if (estado == null) {
+            throw new InvalidRequestException("estadoProducto", "es obligatorio");
+        }
+        return productoRepository.findByEstadoProductoOrderByIdProductoAsc(estado, ProductoVista.class);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<ProductoVista> obtenerVistasConStockBajo(Integer limiteMinimoStock) {
+        List<Producto> productos = obtenerProductosConStockBajo(limiteMinimoStock);
+        List<ProductoVista> vistas = new ArrayList<>(productos.size());
+        for (Producto producto : productos) {
+            vistas.add(ProductoVista.desde(producto));
+        }
+        return vistas;
+    }
+
+    @Transactional(readOnly = true)
+    public PaginaVistas obtenerPaginaVistas(Integer despuesDe, Integer limite) {
+        if (limite == null || limite <= 0 || limite > LIMITE_MAXIMO_PAGINA) {
+            throw new InvalidRequestException("limit", "debe estar entre 1 y " + LIMITE_MAXIMO_PAGINA);
+        }
+
+        int cursor = despuesDe != null ? despuesDe : 0;
+        List<ProductoVista> productos = productoRepository.findByIdProductoGreaterThanOrderByIdProductoAsc(cursor,
+                Limit.of(limite + 1), ProductoVista.class);
+
+        if (productos.size() <= limite) {
+            return new PaginaVistas(productos, null);
+        }
+        List<ProductoVista> pagina = productos.subList(0, limite);
+        return new PaginaVistas(pagina, pagina.get(limite - 1).idProducto());
+    }
+
+    @Transactional(readOnly = true)
+    public void recorrerTodos(Consumer<Producto> consumidor) {
+        productoJdbcRepository.recorrerTodos(consumidor);
+    }
+
     public Producto crear(Producto producto) {
+        validarAlta(producto);
+
+        return guardarYPublicar(null, producto);
+    }
+
+    /**
+     * Validaciones y valores por defecto de un alta; también las aplica la importación masiva.
+     */
+    void validarAlta(Producto producto) {
         validarDatosBasicosProducto(producto);
 
-        if (producto.getStockActual() == null || producto.getStockActual() < 0) {
+        if (producto.getStockActual() < 0) {
             throw new InvalidRequestException("stockActual", "debe ser mayor o igual a 0");
         }
 
@@ -51,97 +246,459 @@ public class ProductoService {
             throw new InvalidRequestException("precioVenta", "debe ser mayor a 0");
         }
 
-        if (producto.getEstadoProducto() == null || producto.getEstadoProducto().trim().isEmpty()) {
-            producto.setEstadoProducto("Activo");
+        if (producto.getEstadoProducto() == null) {
+            producto.setEstadoProducto(EstadoProducto.ACTIVO);
         }
 
-        validarEstadoProducto(producto.getEstadoProducto());
         actualizarEstadoPorStock(producto);
+    }
 
-        return productoRepository.save(producto);
+    public Producto cambiarEstado(Integer id, EstadoProducto nuevoEstado) {
+        return cambiarEstado(id, nuevoEstado, null);
     }
 
-    public Producto cambiarEstado(Integer id, String nuevoEstado) {
-        Producto producto = obtenerPorId(id);
+    /**
+     * Como {@link #cambiarEstado(Integer, EstadoProducto)}, pero solo si la marca de versión
+     * actual es una de {@code marcasEsperadas} ({@code null} no impone condición).
+     */
+    public Producto cambiarEstado(Integer id, EstadoProducto nuevoEstado, List<String> marcasEsperadas) {
+        validarMarcaVersion(id, marcasEsperadas);
+        if (nuevoEstado == EstadoProducto.AGOTADO) {
+            stockLedger.agotar(id);
+        }
+        stockLedger.volcar(id);
+        Producto producto = buscarEntidad(id);
+        Producto anterior = new Producto(producto);
         
-        validarEstadoProducto(nuevoEstado);
+        if (nuevoEstado == null) {
+            throw new InvalidRequestException("estadoProducto", "es obligatorio");
+        }
         
-        if (producto.getEstadoProducto().equals(nuevoEstado)) {
-            throw new InvalidProductStateException(producto.getEstadoProducto(), nuevoEstado);
+        if (producto.getEstadoProducto() == nuevoEstado) {
+            throw new InvalidProductStateException(producto.getEstadoProducto().getEtiqueta(), nuevoEstado.getEtiqueta());
         }
 
         producto.setEstadoProducto(nuevoEstado);
         
-        if ("Agotado".equals(nuevoEstado)) {
+        if (nuevoEstado == EstadoProducto.AGOTADO) {
             producto.setStockActual(0);
         }
 
-        return productoRepository.save(producto);
+        diarioStock.registrar(DiarioStock.Movimiento.entre(DiarioStock.Origen.CAMBIO_ESTADO, anterior, producto, null));
+        return guardarYPublicar(anterior, producto);
     }
 
     public Producto aumentarStock(Integer id, Integer cantidad, BigDecimal nuevoCostoCompra) {
-        Producto producto = obtenerPorId(id);
+        return aumentarStock(id, cantidad, nuevoCostoCompra, null);
+    }
+
+    public Producto aumentarStock(Integer id, Integer cantidad, BigDecimal nuevoCostoCompra,
+            List<String> marcasEsperadas) {
+        validarMarcaVersion(id, marcasEsperadas);
+        stockLedger.volcar(id);
+        Producto producto = buscarEntidad(id);
+        Producto anterior = new Producto(producto);
+
+        validarAumentoStock(cantidad, nuevoCostoCompra);
+        aplicarAumentoStock(producto, cantidad, nuevoCostoCompra);
+        stockLedger.sincronizar(id, stock -> stock + cantidad);
+
+        diarioStock.registrar(DiarioStock.Movimiento.entre(DiarioStock.Origen.AUMENTO, anterior, producto,
+                nuevoCostoCompra));
+        return guardarYPublicar(anterior, producto);
+    }
+
+    public Producto disminuirStock(Integer id, Integer cantidad) {
+        return disminuirStock(id, cantidad, null);
+    }
+
+    public Producto disminuirStock(Integer id, Integer cantidad, List<String> marcasEsperadas) {
+        return disminuirStock(id, cantidad, 0, marcasEsperadas);
+    }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public ReservaStock reservarStock(Integer id, Integer cantidad, Long ttlSegundos) {
+        if (id == null) {
+            throw new InvalidRequestException("idProducto", "es obligatorio");
+        }
         if (cantidad == null || cantidad <= 0) {
             throw new InvalidRequestException("cantidad", "debe ser mayor a 0");
         }
+        Duration ttl = ttlSegundos != null ? Duration.ofSeconds(ttlSegundos) : reservasStock.getTtlPredeterminado();
+        if (ttl.isNegative() || ttl.isZero() || ttl.compareTo(reservasStock.getTtlMaximo()) > 0) {
+            throw new InvalidRequestException("ttlSegundos",
+                    "debe estar entre 1 y " + reservasStock.getTtlMaximo().toSeconds());
+        }
+        return reservasStock.reservar(id, cantidad, ttl, () -> stockVigente(id));
+    }
 
-        if (nuevoCostoCompra == null || nuevoCostoCompra.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new InvalidRequestException("costoCompra", "debe ser mayor a 0");
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public ReservaStock obtenerReserva(UUID idReserva) {
+        return reservasStock.obtener(idReserva);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void liberarReserva(UUID idReserva) {
+        reservasStock.liberar(idReserva);
+    }
+
+    /**
+     * Descuenta del stock las unidades de la reserva. Si la transacción se revierte, la reserva
+     * vuelve a quedar activa.
+     */
+    public Producto confirmarReserva(UUID idReserva) {
+        ReservaStock reserva = reservasStock.consumir(idReserva);
+        // Las unidades de esta reserva ya estaban apartadas: solo las demás deben seguir cubiertas.
+        return disminuirStock(reserva.idProducto(), reserva.cantidad(), reserva.cantidad(), null);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public DisponibilidadStock obtenerDisponibilidad(Integer id) {
+        int stock = obtenerPorId(id).getStockActual();
+        int reservado = reservasStock.reservadas(id);
+        return new DisponibilidadStock(id, stock, reservado, Math.max(stock - reservado, 0));
+    }
+
+    /**
+     * Totales de movimientos de stock por hora o por día, de un producto o, sin {@code id}, de
+     * todo el catálogo. Sin rango se toman las últimas 24 horas o los últimos 30 días.
+     */
+    @Transactional(readOnly = true)
+    public List<ResumenMovimientos> obtenerHistorialStock(Integer id, String granularidad, Instant desde,
+            Instant hasta) {
+        DiarioStock.Granularidad unidad = DiarioStock.Granularidad.desde(granularidad);
+        Instant fin = hasta != null ? hasta : Instant.now();
+        Instant inicio = desde != null ? desde
+                : fin.minus(unidad == DiarioStock.Granularidad.HORA ? Duration.ofDays(1) : Duration.ofDays(30));
+        if (!inicio.isBefore(fin)) {
+            throw new InvalidRequestException("desde", "debe ser anterior a hasta");
+        }
+        if (Duration.between(inicio, fin).compareTo(unidad.getRangoMaximo()) > 0) {
+            throw new InvalidRequestException("desde",
+                    "el rango no puede superar " + unidad.getRangoMaximo().toDays() + " días");
+        }
+        if (id != null && !productoRepository.existsById(id)) {
+            throw new NotFoundException("Producto", id.toString());
         }
+        return diarioStock.resumir(id, unidad, inicio, fin);
+    }
 
-        Integer stockAnterior = producto.getStockActual();
-        BigDecimal costoAnterior = producto.getCostoCompra() != null ? producto.getCostoCompra() : BigDecimal.ZERO;
+    /**
+     * {@code propias} son las unidades de la reserva que se está confirmando: ya no deben seguir
+     * cubiertas. Lo reservado se lee dentro de la sección crítica del producto (ver
+     * {@link ReservasStock}).
+     */
+    private Producto disminuirStock(Integer id, Integer cantidad, int propias, List<String> marcasEsperadas) {
+        // Con precondición se toma la ruta JPA aun con el libro habilitado: la marca se compara
+        // con el bloqueo del producto tomado y antes del volcado, que incrementa la versión.
+        if (stockLedger.isHabilitado() && marcasEsperadas == null) {
+            return disminuirStockEnLedger(id, cantidad, propias);
+        }
+        int reservado = reservasStock.bloquearHastaTerminar(id) - propias;
+        if (decrementoAtomico && marcasEsperadas == null) {
+            return disminuirStockAtomico(id, cantidad, reservado);
+        }
 
-        BigDecimal costoTotalAnterior = costoAnterior.multiply(new BigDecimal(stockAnterior));
-        BigDecimal costoTotalNuevo = nuevoCostoCompra.multiply(new BigDecimal(cantidad));
-        BigDecimal costoTotalFinal = costoTotalAnterior.add(costoTotalNuevo);
+        validarMarcaVersion(id, marcasEsperadas);
+        stockLedger.volcar(id);
+        Producto producto = buscarEntidad(id);
+        Producto anterior = new Producto(producto);
 
-        Integer stockFinal = stockAnterior + cantidad;
-        BigDecimal costoPromedioFinal = costoTotalFinal.divide(new BigDecimal(stockFinal), 2, RoundingMode.HALF_UP);
+        validarDisminucionStock(producto, cantidad, reservado);
+        stockLedger.apartar(id, cantidad, reservado, 0);
+        aplicarDisminucionStock(producto, cantidad);
 
-        BigDecimal nuevoPrecioVenta = costoPromedioFinal.multiply(BigDecimal.ONE.add(MARGEN_GANANCIA))
-                .setScale(2, RoundingMode.HALF_UP);
+        diarioStock.registrar(DiarioStock.Movimiento.entre(DiarioStock.Origen.DISMINUCION, anterior, producto, null));
+        return guardarYPublicar(anterior, producto);
+    }
 
-        producto.setStockActual(stockFinal);
-        producto.setCostoCompra(costoPromedioFinal);
-        producto.setPrecioVenta(nuevoPrecioVenta);
-        producto.setEstadoProducto("Activo");
+    public List<ResultadoMovimiento> aplicarMovimientos(List<MovimientoStock> movimientos) {
+        if (movimientos == null || movimientos.isEmpty()) {
+            throw new InvalidRequestException("movimientos", "debe contener al menos un movimiento");
+        }
 
-        return productoRepository.save(producto);
+        List<MovimientoAplicado> aplicados = aplicarEnGrupo(movimientos);
+        List<ResultadoMovimiento> resultados = new ArrayList<>(aplicados.size());
+        for (int indice = 0; indice < aplicados.size(); indice++) {
+            MovimientoAplicado aplicado = aplicados.get(indice);
+            Integer id = movimientos.get(indice).idProducto();
+            if (aplicado.error() == null) {
+                resultados.add(ResultadoMovimiento.exitoso(indice, id, aplicado.producto().getStockActual()));
+            } else {
+                metricasInventario.registrarRechazo(aplicado.error());
+                resultados.add(ResultadoMovimiento.fallido(indice, id, aplicado.error().getMessage()));
+            }
+        }
+        return resultados;
     }
 
-    public Producto disminuirStock(Integer id, Integer cantidad) {
-        Producto producto = obtenerPorId(id);
+    /**
+     * Aplica los movimientos en la transacción actual y devuelve, en el orden recibido, el
+     * producto tal como quedó tras cada movimiento o la excepción que lo rechazó. Un rechazo no
+     * afecta a los demás movimientos; lo usa también la combinación de escrituras.
+     */
+    List<MovimientoAplicado> aplicarEnGrupo(List<MovimientoStock> movimientos) {
+        // Los movimientos se procesan ordenados por producto para que las filas se bloqueen
+        // siempre en el mismo orden; dentro de un producto se respeta el orden recibido.
+        List<Integer> orden = new ArrayList<>(movimientos.size());
+        for (int i = 0; i < movimientos.size(); i++) {
+            orden.add(i);
+        }
+        orden.sort(Comparator.comparing(i -> movimientos.get(i).idProducto(),
+                Comparator.nullsLast(Comparator.naturalOrder())));
+
+        Set<Integer> ids = new TreeSet<>();
+        for (MovimientoStock movimiento : movimientos) {
+            if (movimiento.idProducto() != null) {
+                ids.add(movimiento.idProducto());
+            }
+        }
+        // Las reservas de estos productos esperan a que termine la transacción.
+        reservasStock.bloquearHastaTerminar(ids);
+        ids.forEach(stockLedger::volcar);
+
+        Map<Integer, Producto> productos = new HashMap<>();
+        Map<Integer, Producto> anteriores = new HashMap<>();
+        for (Producto producto : productoRepository.findAllById(ids)) {
+            productos.put(producto.getIdProducto(), producto);
+            anteriores.put(producto.getIdProducto(), new Producto(producto));
+        }
 
-        if (cantidad == null || cantidad <= 0) {
-            throw new InvalidRequestException("cantidad", "debe ser mayor a 0");
+        MovimientoAplicado[] aplicados = new MovimientoAplicado[movimientos.size()];
+        Map<Integer, Integer> deltas = new HashMap<>();
+        // Las disminuciones se descuentan de la celda del libro al aplicarse; los aumentos se
+        // suman a ella recién al confirmar.
+        Map<Integer, Integer> aumentos = new HashMap<>();
+        // Estado de cada producto tras su último movimiento aplicado, para anotar cada uno en el
+        // diario con su propio antes y después.
+        Map<Integer, Producto> ultimos = new HashMap<>(anteriores);
+        List<DiarioStock.Movimiento> diario = new ArrayList<>();
+        for (Integer indice : orden) {
+            MovimientoStock movimiento = movimientos.get(indice);
+            Integer id = movimiento.idProducto();
+            try {
+                Producto producto = aplicarMovimiento(productos, aumentos, movimiento);
+                boolean aumento = movimiento.tipo() == MovimientoStock.Tipo.AUMENTAR;
+                int delta = aumento ? movimiento.cantidad() : -movimiento.cantidad();
+                deltas.merge(id, delta, Integer::sum);
+                if (aumento) {
+                    aumentos.merge(id, delta, Integer::sum);
+                }
+                Producto despues = new Producto(producto);
+                DiarioStock.Origen origen = aumento ? DiarioStock.Origen.AUMENTO : DiarioStock.Origen.DISMINUCION;
+                diario.add(DiarioStock.Movimiento.entre(origen, ultimos.put(id, despues), despues,
+                        aumento ? movimiento.costoCompra() : null));
+                aplicados[indice] = new MovimientoAplicado(new Producto(producto), null);
+            } catch (NotFoundException | InvalidRequestException | InsufficientStockException e) {
+                aplicados[indice] = new MovimientoAplicado(null, e);
+            }
         }
 
-        if (producto.getStockActual() < cantidad) {
-            throw new InsufficientStockException(producto.getStockActual(), cantidad);
+        List<Producto> modificados = new ArrayList<>();
+        for (Integer id : deltas.keySet()) {
+            modificados.add(productos.get(id));
+        }
+        productoRepository.saveAll(modificados);
+        productoRepository.flush();
+        diarioStock.registrar(diario);
+        for (Producto producto : modificados) {
+            eventPublisher.publishEvent(new ProductoModificadoEvent(anteriores.get(producto.getIdProducto()),
+                    new Producto(producto)));
         }
+        aumentos.forEach((id, aumento) -> stockLedger.sincronizar(id, stock -> stock + aumento));
 
-        Integer nuevoStock = producto.getStockActual() - cantidad;
-        producto.setStockActual(nuevoStock);
+        // Todos los movimientos de un producto comparten la versión con la que quedó guardado.
+        for (MovimientoAplicado aplicado : aplicados) {
+            if (aplicado.producto() != null) {
+                aplicado.producto().setVersion(productos.get(aplicado.producto().getIdProducto()).getVersion());
+            }
+        }
+        return Arrays.asList(aplicados);
+    }
+
+    private Producto aplicarMovimiento(Map<Integer, Producto> productos, Map<Integer, Integer> aumentos,
+            MovimientoStock movimiento) {
+        if (movimiento.idProducto() == null) {
+            throw new InvalidRequestException("idProducto", "es obligatorio");
+        }
+        if (movimiento.tipo() == null) {
+            throw new InvalidRequestException("tipo", "es obligatorio (AUMENTAR o DISMINUIR)");
+        }
 
+        Producto producto = productos.get(movimiento.idProducto());
+        if (producto == null) {
+            throw new NotFoundException("Producto", movimiento.idProducto().toString());
+        }
+
+        if (movimiento.tipo() == MovimientoStock.Tipo.AUMENTAR) {
+            validarAumentoStock(movimiento.cantidad(), movimiento.costoCompra());
+            aplicarAumentoStock(producto, movimiento.cantidad(), movimiento.costoCompra());
+        } else {
+            int reservado = reservasStock.reservadas(producto.getIdProducto());
+            validarDisminucionStock(producto, movimiento.cantidad(), reservado);
+            stockLedger.apartar(producto.getIdProducto(), movimiento.cantidad(), reservado,
+                    aumentos.getOrDefault(producto.getIdProducto(), 0));
+            aplicarDisminucionStock(producto, movimiento.cantidad());
+        }
+        return producto;
+    }
+
+    private Producto disminuirStockEnLedger(Integer id, Integer cantidad, int propias) {
+        if (cantidad == null || cantidad <= 0) {
+            throw new InvalidRequestException("cantidad", "debe ser mayor a 0");
+        }
+
+        // El descuento en el libro es inmediato, así que basta con la sección crítica del producto
+        // mientras se valida contra lo reservado.
+        StockLedger.Disminucion disminucion = reservasStock.conBloqueo(id,
+                reservadas -> stockLedger.disminuir(id, cantidad, reservadas - propias));
+        int nuevoStock = disminucion.stock();
+
+        // La respuesta se arma sobre la instantánea en caché; el cambio se persiste en el
+        // próximo volcado del libro de stock.
+        Producto anterior = new Producto(obtenerPorId(id));
+        anterior.setStockActual(nuevoStock + cantidad);
+        Producto producto = new Producto(anterior);
+        producto.setStockActual(nuevoStock);
+        // La versión no cambia hasta el volcado; la secuencia del libro ordena esta instantánea
+        // respecto de las de otras disminuciones concurrentes.
+        producto.setSecuenciaLibro(disminucion.secuencia());
         actualizarEstadoPorStock(producto);
+        diarioStock.registrar(DiarioStock.Movimiento.entre(DiarioStock.Origen.DISMINUCION, anterior, producto, null));
+        eventPublisher.publishEvent(new ProductoModificadoEvent(anterior, new Producto(producto)));
+        return producto;
+    }
+
+    /**
+     * Disminución en una sola sentencia: la base de datos valida el stock, incrementa la versión
+     * y devuelve la fila nueva, sin leer la entidad ni competir por el bloqueo optimista.
+     */
+    private Producto disminuirStockAtomico(Integer id, Integer cantidad, int reservado) {
+        if (cantidad == null || cantidad <= 0) {
+            throw new InvalidRequestException("cantidad", "debe ser mayor a 0");
+        }
+
+        Optional<ProductoJdbcRepository.StockDisminuido> resultado = productoJdbcRepository.disminuirStock(id,
+                cantidad, reservado);
+        if (resultado.isEmpty()) {
+            // Ninguna fila afectada: se distingue si el producto no existe o le falta stock.
+            int stock = productoJdbcRepository.obtenerStock(id)
+                    .orElseThrow(() -> new NotFoundException("Producto", id.toString()));
+            throw new InsufficientStockException(Math.max(stock - reservado, 0), cantidad);
+        }
 
-        return productoRepository.save(producto);
+        cacheSegundoNivel.desalojarProductos(List.of(id));
+        Producto producto = resultado.get().producto();
+        Producto anterior = new Producto(producto);
+        anterior.setStockActual(producto.getStockActual() + cantidad);
+        anterior.setEstadoProducto(resultado.get().estadoAnterior());
+        anterior.setVersion(producto.getVersion() - 1);
+        diarioStock.registrar(DiarioStock.Movimiento.entre(DiarioStock.Origen.DISMINUCION, anterior, producto, null));
+        eventPublisher.publishEvent(new ProductoModificadoEvent(anterior, new Producto(producto)));
+        return producto;
     }
 
     @Transactional(readOnly = true)
-    public List<Producto> obtenerPorEstado(String estado) {
-        validarEstadoProducto(estado);
+    public List<Producto> obtenerPorEstado(EstadoProducto estado) {
+        if (estado == null) {
+            throw new InvalidRequestException("estadoProducto", "es obligatorio");
+        }
         return productoRepository.findByEstadoProducto(estado);
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<Producto> obtenerProductosConStockBajo(Integer limiteMinimoStock) {
         if (limiteMinimoStock == null || limiteMinimoStock < 0) {
             throw new InvalidRequestException("limiteMinimoStock", "debe ser mayor o igual a 0");
         }
-        return productoRepository.findByStockActualLessThan(limiteMinimoStock);
+        // El índice puede ir detrás de la caché: se descartan los que ya no están bajo el límite.
+        List<Producto> productos = obtenerPorIds(indiceStockBajo.conStockMenorQue(limiteMinimoStock));
+        productos.removeIf(producto -> producto.getStockActual() >= limiteMinimoStock);
+        return productos;
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<ResultadoBusqueda> buscar(String consulta, EstadoProducto estado, Integer limite) {
+        if (consulta == null || consulta.isBlank()) {
+            throw new InvalidRequestException("q", "es obligatorio");
+        }
+        if (limite == null || limite <= 0 || limite > LIMITE_MAXIMO_BUSQUEDA) {
+            throw new InvalidRequestException("limit", "debe estar entre 1 y " + LIMITE_MAXIMO_BUSQUEDA);
+        }
+        // El índice solo guarda los términos; los productos se leen de la caché y los que faltan
+        // en una sola consulta. Un producto eliminado después de indexarse se omite.
+        List<IndiceBusqueda.Coincidencia> coincidencias = indiceBusqueda.buscar(consulta, estado, limite);
+        List<Integer> ids = new ArrayList<>(coincidencias.size());
+        for (IndiceBusqueda.Coincidencia coincidencia : coincidencias) {
+            ids.add(coincidencia.idProducto());
+        }
+        Map<Integer, Producto> productos = new HashMap<>();
+        for (Producto producto : obtenerPorIds(ids)) {
+            productos.put(producto.getIdProducto(), producto);
+        }
+        List<ResultadoBusqueda> resultados = new ArrayList<>(coincidencias.size());
+        for (IndiceBusqueda.Coincidencia coincidencia : coincidencias) {
+            Producto producto = productos.get(coincidencia.idProducto());
+            if (producto != null) {
+                resultados.add(new ResultadoBusqueda(producto, coincidencia.relevancia()));
+            }
+        }
+        return resultados;
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public SseEmitter suscribirAlertasStockBajo(Integer umbral) {
+        if (umbral == null || umbral < 0) {
+            throw new InvalidRequestException("umbral", "debe ser mayor o igual a 0");
+        }
+        return alertasStockBajo.suscribir(umbral, () -> obtenerProductosConStockBajo(umbral));
+    }
+
+    /**
+     * Stock contra el que se valida una reserva: el de la celda del libro, que incluye las
+     * disminuciones todavía no volcadas, o el confirmado en la base.
+     */
+    private int stockVigente(Integer id) {
+        Integer enMemoria = stockLedger.stockEnMemoria(id);
+        if (enMemoria != null) {
+            return enMemoria;
+        }
+        return productoJdbcRepository.obtenerStock(id).orElseThrow(() -> new NotFoundException("Producto", id.toString()));
+    }
+
+    private Producto buscarEntidad(Integer id) {
+        Optional<Producto> producto = productoRepository.findById(id);
+        if (producto.isEmpty()) {
+            throw new NotFoundException("Producto", id.toString());
+        }
+        return producto.get();
+    }
+
+    private Producto guardarYPublicar(Producto anterior, Producto producto) {
+        Producto guardado = productoRepository.saveAndFlush(producto);
+        eventPublisher.publishEvent(new ProductoModificadoEvent(anterior, new Producto(guardado)));
+        return guardado;
+    }
+
+    private String marcaVersion(Integer id, Long version, int stockActual) {
+        if (!stockLedger.isHabilitado()) {
+            return id + "-" + version;
+        }
+        return id + "-" + version + "-" + stockActual;
+    }
+
+    /**
+     * Compara con la misma marca que recibió el cliente en el ETag. Se llama antes de volcar el
+     * libro de stock: el volcado incrementa la versión de la fila sin cambiar el producto.
+     */
+    private void validarMarcaVersion(Integer id, List<String> marcasEsperadas) {
+        if (marcasEsperadas == null) {
+            return;
+        }
+        String actual = obtenerMarcaVersion(id);
+        if (!marcasEsperadas.contains(actual)) {
+            throw new PreconditionFailedException("Producto", id.toString(), actual);
+        }
     }
 
     private void validarDatosBasicosProducto(Producto producto) {
@@ -151,22 +708,55 @@ public class ProductoService {
         producto.setNombreProducto(producto.getNombreProducto().trim());
     }
 
-    private void validarEstadoProducto(String estado) {
-        if (estado == null || estado.trim().isEmpty()) {
-            throw new InvalidRequestException("estadoProducto", "es obligatorio");
+    private void validarAumentoStock(Integer cantidad, BigDecimal nuevoCostoCompra) {
+        if (cantidad == null || cantidad <= 0) {
+            throw new InvalidRequestException("cantidad", "debe ser mayor a 0");
+        }
+
+        if (nuevoCostoCompra == null || nuevoCostoCompra.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new InvalidRequestException("costoCompra", "debe ser mayor a 0");
+        }
+    }
+
+    private void aplicarAumentoStock(Producto producto, int cantidad, BigDecimal nuevoCostoCompra) {
+        int stockAnterior = producto.getStockActual();
+        int stockFinal = stockAnterior + cantidad;
+        BigDecimal costoPromedioFinal = CalculadoraCostos.costoPromedio(producto.getCostoCompra(), stockAnterior,
+                nuevoCostoCompra, cantidad);
+        BigDecimal nuevoPrecioVenta = CalculadoraCostos.precioVenta(costoPromedioFinal);
+
+        producto.setStockActual(stockFinal);
+        producto.setCostoCompra(costoPromedioFinal);
+        producto.setPrecioVenta(nuevoPrecioVenta);
+        producto.setEstadoProducto(EstadoProducto.ACTIVO);
+    }
+
+    private void validarDisminucionStock(Producto producto, Integer cantidad, int reservado) {
+        if (cantidad == null || cantidad <= 0) {
+            throw new InvalidRequestException("cantidad", "debe ser mayor a 0");
         }
 
-        String estadoLimpio = estado.trim();
-        if (!estadoLimpio.equals("Activo") && !estadoLimpio.equals("Inactivo") && !estadoLimpio.equals("Agotado")) {
-            throw new InvalidProductStateException("Los estados válidos son: Activo, Inactivo, Agotado");
+        // Las unidades retenidas por reservas activas no están disponibles para otras ventas.
+        int disponible = producto.getStockActual() - reservado;
+        if (disponible < cantidad) {
+            throw new InsufficientStockException(Math.max(disponible, 0), cantidad);
         }
     }
 
+    private void aplicarDisminucionStock(Producto producto, int cantidad) {
+        producto.setStockActual(producto.getStockActual() - cantidad);
+
+        actualizarEstadoPorStock(producto);
+    }
+
     private void actualizarEstadoPorStock(Producto producto) {
         if (producto.getStockActual() == 0) {
-            producto.setEstadoProducto("Agotado");
-        } else if (!"Inactivo".equals(producto.getEstadoProducto())) {
-            producto.setEstadoProducto("Activo");
+            producto.setEstadoProducto(EstadoProducto.AGOTADO);
+        } else if (producto.getEstadoProducto() != EstadoProducto.INACTIVO) {
+            producto.setEstadoProducto(EstadoProducto.ACTIVO);
         }
     }
-} 
\ No newline at end of file
+
+    record MovimientoAplicado(Producto producto, RuntimeException error) {
+    }
+}
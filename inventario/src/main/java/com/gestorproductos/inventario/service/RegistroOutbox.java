@@ -0,0 +1,175 @@
+package com.gestorproductos.inventario.service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gestorproductos.inventario.event.CategoriaModificadaEvent;
+import com.gestorproductos.inventario.event.ProductoModificadoEvent;
+import com.gestorproductos.inventario.model.CategoriaProducto;
+import com.gestorproductos.inventario.model.EstadoProducto;
+import com.gestorproductos.inventario.model.EventoOutbox;
+import com.gestorproductos.inventario.model.Producto;
+
+/**
+ * Agrega al outbox un evento por cada cambio de producto o categoría. Los eventos de una
+ * transacción se acumulan al publicarse y se insertan juntos, en un único lote JDBC, justo
+ * antes del commit: la fila existe solo si la escritura se confirma, y una importación de
+ * cientos de filas no paga un INSERT por fila (con ids IDENTITY, Hibernate no los agruparía).
+ * Sin transacción, el evento se inserta en el momento.
+ */
+@Component
+public class RegistroOutbox {
+
+    private static final String SQL_INSERTAR = "INSERT INTO outbox_eventos "
+            + "(entidad, id_entidad, version, operacion, campos, registrado_en) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public RegistroOutbox(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    void alModificarProducto(ProductoModificadoEvent evento) {
+        Producto anterior = evento.anterior();
+        Producto actual = evento.actual();
+        // Sin versión nueva, el cambio es un movimiento del libro de stock que todavía no llegó a
+        // la fila: lo registra el volcado que lo aplica (ver registrarVolcado).
+        if (anterior != null && Objects.equals(anterior.getVersion(), actual.getVersion())) {
+            return;
+        }
+        ObjectNode campos = objectMapper.createObjectNode();
+        if (anterior == null || !Objects.equals(anterior.getNombreProducto(), actual.getNombreProducto())) {
+            campos.put("nombreProducto", actual.getNombreProducto());
+        }
+        if (anterior == null || !Objects.equals(anterior.getDescripcion(), actual.getDescripcion())) {
+            campos.put("descripcion", actual.getDescripcion());
+        }
+        if (anterior == null || !mismoImporte(anterior.getPrecioVenta(), actual.getPrecioVenta())) {
+            campos.put("precioVenta", actual.getPrecioVenta());
+        }
+        if (anterior == null || !mismoImporte(anterior.getCostoCompra(), actual.getCostoCompra())) {
+            campos.put("costoCompra", actual.getCostoCompra());
+        }
+        if (anterior == null || anterior.getStockActual() != actual.getStockActual()) {
+            campos.put("stockActual", actual.getStockActual());
+        }
+        if (anterior == null || anterior.getEstadoProducto() != actual.getEstadoProducto()) {
+            campos.put("estadoProducto", actual.getEstadoProducto().getEtiqueta());
+        }
+        if (anterior != null && campos.isEmpty()) {
+            return;
+        }
+        registrar(EventoOutbox.ENTIDAD_PRODUCTO, evento.idProducto(), actual.getVersion(),
+                anterior == null ? EventoOutbox.OPERACION_ALTA : EventoOutbox.OPERACION_CAMBIO, campos);
+    }
+
+    @EventListener
+    void alModificarCategoria(CategoriaModificadaEvent evento) {
+        CategoriaProducto anterior = evento.anterior();
+        CategoriaProducto actual = evento.actual();
+        ObjectNode campos = objectMapper.createObjectNode();
+        if (actual == null) {
+            registrar(EventoOutbox.ENTIDAD_CATEGORIA, evento.idCategoria(), anterior.getVersion(),
+                    EventoOutbox.OPERACION_BAJA, campos);
+            return;
+        }
+        if (anterior == null || !Objects.equals(anterior.getNombreCategoria(), actual.getNombreCategoria())) {
+            campos.put("nombreCategoria", actual.getNombreCategoria());
+        }
+        if (anterior == null || !Objects.equals(anterior.getDescripcion(), actual.getDescripcion())) {
+            campos.put("descripcion", actual.getDescripcion());
+        }
+        if (anterior != null && campos.isEmpty()) {
+            return;
+        }
+        registrar(EventoOutbox.ENTIDAD_CATEGORIA, evento.idCategoria(), actual.getVersion(),
+                anterior == null ? EventoOutbox.OPERACION_ALTA : EventoOutbox.OPERACION_CAMBIO, campos);
+    }
+
+    /**
+     * Cambio de stock aplicado a la tabla por un volcado del libro de stock, que no publica
+     * {@link ProductoModificadoEvent}.
+     */
+    public void registrarVolcado(Integer idProducto, long version, int stockActual, EstadoProducto estado) {
+        ObjectNode campos = objectMapper.createObjectNode();
+        campos.put("stockActual", stockActual);
+        campos.put("estadoProducto", estado.getEtiqueta());
+        registrar(EventoOutbox.ENTIDAD_PRODUCTO, idProducto, version, EventoOutbox.OPERACION_CAMBIO, campos);
+    }
+
+    private void registrar(String entidad, Integer idEntidad, Long version, String operacion, ObjectNode campos) {
+        Object[] fila;
+        try {
+            fila = new Object[] { entidad, idEntidad, version, operacion, objectMapper.writeValueAsString(campos),
+                    Timestamp.from(Instant.now()) };
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento de outbox", e);
+        }
+        Pendientes pendientes = pendientes();
+        if (pendientes == null) {
+            jdbcTemplate.update(SQL_INSERTAR, fila);
+        } else {
+            pendientes.filas.add(fila);
+        }
+    }
+
+    /**
+     * Filas pendientes de la transacción actual; la primera llamada de la transacción registra
+     * la sincronización que las inserta antes del commit. Devuelve {@code null} sin transacción
+     * o si el lote ya se insertó.
+     */
+    private Pendientes pendientes() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Pendientes pendientes = (Pendientes) TransactionSynchronizationManager.getResource(this);
+        if (pendientes == null) {
+            pendientes = new Pendientes();
+            TransactionSynchronizationManager.bindResource(this, pendientes);
+            TransactionSynchronizationManager.registerSynchronization(pendientes);
+        }
+        return pendientes.insertadas ? null : pendientes;
+    }
+
+    private static boolean mismoImporte(BigDecimal anterior, BigDecimal actual) {
+        if (anterior == null || actual == null) {
+            return anterior == actual;
+        }
+        return anterior.compareTo(actual) == 0;
+    }
+
+    private final class Pendientes implements TransactionSynchronization {
+
+        private final List<Object[]> filas = new ArrayList<>();
+        private boolean insertadas;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            insertadas = true;
+            if (!filas.isEmpty()) {
+                jdbcTemplate.batchUpdate(SQL_INSERTAR, filas);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(RegistroOutbox.this);
+        }
+    }
+}
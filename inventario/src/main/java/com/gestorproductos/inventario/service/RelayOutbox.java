@@ -0,0 +1,108 @@
+package com.gestorproductos.inventario.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gestorproductos.inventario.dto.EventoCambio;
+import com.gestorproductos.inventario.model.EventoOutbox;
+import com.gestorproductos.inventario.repository.EventoOutboxRepository;
+
+/**
+ * Publica los eventos pendientes del outbox en orden de inserción y les asigna la posición con
+ * la que reanudan los consumidores. Las posiciones salen de {@code outbox_posicion}, cuya fila
+ * bloqueada serializa la asignación entre instancias y no retrocede con la limpieza.
+ */
+@Component
+public class RelayOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(RelayOutbox.class);
+
+    private static final String SQL_RESERVAR_POSICIONES = "UPDATE outbox_posicion "
+            + "SET ultima_posicion = ultima_posicion + ? WHERE id = 1 RETURNING ultima_posicion";
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final DestinoCambios destinoCambios;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoLote;
+    private final Duration retencion;
+    private final ReentrantLock bloqueo = new ReentrantLock();
+
+    public RelayOutbox(EventoOutboxRepository eventoOutboxRepository, DestinoCambios destinoCambios,
+            JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${inventario.outbox.tamano-lote:500}") int tamanoLote,
+            @Value("${inventario.outbox.retencion:P7D}") Duration retencion) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        this.destinoCambios = destinoCambios;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanoLote = tamanoLote;
+        this.retencion = retencion;
+    }
+
+    @Scheduled(fixedDelayString = "${inventario.outbox.intervalo-relay-ms:500}")
+    public void publicarPendientes() {
+        if (!bloqueo.tryLock()) {
+            return;
+        }
+        try {
+            int publicados;
+            do {
+                publicados = publicarLote();
+            } while (publicados == tamanoLote);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Otro relay publicó el lote pendiente; se reintentará", e);
+        } catch (RuntimeException e) {
+            log.error("Fallo al publicar eventos del outbox; se reintentará", e);
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    @Scheduled(cron = "${inventario.outbox.cron-limpieza:0 30 3 * * *}")
+    public void eliminarPublicados() {
+        Integer eliminados = transactionTemplate.execute(
+                status -> eventoOutboxRepository.deletePublicadosAntesDe(Instant.now().minus(retencion)));
+        if (eliminados != null && eliminados > 0) {
+            log.info("Eliminados {} eventos del outbox publicados hace más de {}", eliminados, retencion);
+        }
+    }
+
+    private int publicarLote() {
+        Integer publicados = transactionTemplate.execute(status -> {
+            List<EventoOutbox> pendientes = eventoOutboxRepository.findByPosicionIsNullOrderByIdAsc(
+                    Limit.of(tamanoLote));
+            if (pendientes.isEmpty()) {
+                return 0;
+            }
+            long posicion = jdbcTemplate.queryForObject(SQL_RESERVAR_POSICIONES, Long.class, pendientes.size())
+                    - pendientes.size();
+            Instant ahora = Instant.now();
+            List<EventoCambio> cambios = new ArrayList<>(pendientes.size());
+            for (EventoOutbox evento : pendientes) {
+                evento.marcarPublicado(++posicion, ahora);
+                cambios.add(EventoCambio.desde(evento));
+            }
+            // Se fuerzan las posiciones antes de publicar: si no se pueden escribir, el lote
+            // falla aquí y no llega al destino.
+            eventoOutboxRepository.flush();
+            destinoCambios.publicar(cambios);
+            return pendientes.size();
+        });
+        return publicados != null ? publicados : 0;
+    }
+}
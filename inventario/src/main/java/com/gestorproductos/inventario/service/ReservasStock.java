@@ -0,0 +1,305 @@
+package com.gestorproductos.inventario.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.gestorproductos.inventario.dto.ReservaStock;
+import com.gestorproductos.inventario.exception.InsufficientStockException;
+import com.gestorproductos.inventario.exception.NotFoundException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Reservas de stock con vencimiento, en memoria. Una reserva retiene unidades de un producto
+ * sin tocar {@code stockActual}; el disponible para vender es el stock menos las unidades
+ * reservadas. Al confirmarla, las unidades se descuentan del stock; al liberarla o vencer,
+ * simplemente dejan de estar retenidas.
+ *
+ * <p>Los vencimientos se ordenan en una {@link DelayQueue} que un único hilo consume: cada
+ * reserva se encola una vez y el hilo solo despierta cuando vence la próxima, sin recorrer las
+ * activas. Las reservas confirmadas o liberadas no se quitan de la cola (sería lineal); al
+ * vencer se descartan porque ya no figuran entre las activas.
+ *
+ * <p>Las reservas y las disminuciones de un mismo producto se excluyen con un bloqueo por
+ * producto: una reserva valida contra el stock vigente dentro de esa sección crítica, y una
+ * disminución lee lo reservado y descuenta el stock dentro de ella, así que ninguna de las dos
+ * puede aceptarse sobre unidades que la otra ya tomó. Los bloqueos son un arreglo fijo de
+ * franjas indexado por id, de modo que dos productos pueden compartir franja.
+ *
+ * <p>Como el libro de stock, las reservas son locales a la instancia y no sobreviven a un
+ * reinicio: una reserva perdida equivale a una reserva vencida.
+ */
+@Component
+public class ReservasStock {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservasStock.class);
+
+    private final Map<UUID, Reserva> activas = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> reservadas = new ConcurrentHashMap<>();
+    private final ReentrantLock[] bloqueos;
+    private final DelayQueue<Reserva> vencimientos = new DelayQueue<>();
+    private final Duration ttlPredeterminado;
+    private final Duration ttlMaximo;
+    private final Counter vencidas;
+    private final Thread hiloVencimientos = Thread.ofPlatform()
+            .name("vencimiento-reservas")
+            .daemon()
+            .unstarted(this::procesarVencimientos);
+
+    public ReservasStock(MeterRegistry meterRegistry,
+            @Value("${inventario.reservas.ttl-predeterminado:PT15M}") Duration ttlPredeterminado,
+            @Value("${inventario.reservas.ttl-maximo:PT2H}") Duration ttlMaximo,
+            @Value("${inventario.reservas.franjas-bloqueo:1024}") int franjasBloqueo) {
+        this.bloqueos = new ReentrantLock[franjasBloqueo];
+        for (int i = 0; i < franjasBloqueo; i++) {
+            bloqueos[i] = new ReentrantLock();
+        }
+        this.ttlPredeterminado = ttlPredeterminado;
+        this.ttlMaximo = ttlMaximo;
+        this.vencidas = Counter.builder("inventario.reservas.vencidas")
+                .description("Reservas de stock liberadas por vencimiento")
+                .register(meterRegistry);
+        Gauge.builder("inventario.reservas.activas", activas, Map::size)
+                .description("Reservas de stock activas")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        hiloVencimientos.start();
+    }
+
+    @PreDestroy
+    void detener() {
+        hiloVencimientos.interrupt();
+    }
+
+    public Duration getTtlPredeterminado() {
+        return ttlPredeterminado;
+    }
+
+    public Duration getTtlMaximo() {
+        return ttlMaximo;
+    }
+
+    /**
+     * Retiene {@code cantidad} unidades si el disponible lo permite. {@code stockActual} se lee
+     * dentro de la sección crítica del producto, así que no puede quedar desactualizado por una
+     * disminución en curso.
+     */
+    public ReservaStock reservar(Integer idProducto, int cantidad, Duration ttl, IntSupplier stockActual) {
+        ReentrantLock bloqueo = bloqueo(idProducto);
+        bloqueo.lock();
+        try {
+            int disponible = stockActual.getAsInt() - reservadas(idProducto);
+            if (disponible < cantidad) {
+                throw new InsufficientStockException(Math.max(disponible, 0), cantidad);
+            }
+            reservadas.merge(idProducto, cantidad, Integer::sum);
+        } finally {
+            bloqueo.unlock();
+        }
+        Reserva reserva = new Reserva(UUID.randomUUID(), idProducto, cantidad, ttl);
+        activas.put(reserva.id, reserva);
+        vencimientos.offer(reserva);
+        return reserva.aDto();
+    }
+
+    /**
+     * Ejecuta una disminución que se hace efectiva al instante (la del libro de stock) dentro de
+     * la sección crítica del producto, con las unidades reservadas en ese momento.
+     */
+    public <T> T conBloqueo(Integer idProducto, IntFunction<T> disminucion) {
+        ReentrantLock bloqueo = bloqueo(idProducto);
+        bloqueo.lock();
+        try {
+            return disminucion.apply(reservadas(idProducto));
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * Entra en la sección crítica del producto hasta que termine la transacción actual y
+     * devuelve las unidades reservadas. Las reservas nuevas del producto esperan a que la
+     * disminución se confirme o se revierta. Con varios productos se usa
+     * {@link #bloquearHastaTerminar(Collection)}.
+     */
+    public int bloquearHastaTerminar(Integer idProducto) {
+        bloquearHastaTerminar(List.of(idProducto));
+        return reservadas(idProducto);
+    }
+
+    /**
+     * Como {@link #bloquearHastaTerminar(Integer)} para varios productos. Las franjas se toman en
+     * orden de índice y una sola vez cada una, así que dos transacciones con productos que
+     * comparten franjas no pueden bloquearse mutuamente.
+     */
+    public void bloquearHastaTerminar(Collection<Integer> idsProducto) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("La disminución de stock requiere una transacción activa");
+        }
+        int[] franjas = idsProducto.stream().mapToInt(this::franja).distinct().sorted().toArray();
+        for (int franja : franjas) {
+            bloqueos[franja].lock();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                for (int i = franjas.length - 1; i >= 0; i--) {
+                    bloqueos[franjas[i]].unlock();
+                }
+            }
+        });
+    }
+
+    public ReservaStock obtener(UUID idReserva) {
+        return buscar(idReserva).aDto();
+    }
+
+    public int reservadas(Integer idProducto) {
+        return reservadas.getOrDefault(idProducto, 0);
+    }
+
+    public void liberar(UUID idReserva) {
+        Reserva reserva = activas.remove(idReserva);
+        if (reserva == null) {
+            throw new NotFoundException("Reserva", idReserva.toString());
+        }
+        soltarUnidades(reserva);
+    }
+
+    /**
+     * Retira la reserva para confirmarla en la transacción actual. Sus unidades siguen
+     * retenidas hasta que la transacción termina: si se confirma se sueltan (el stock ya las
+     * descontó) y si se revierte la reserva vuelve a estar activa.
+     */
+    public ReservaStock consumir(UUID idReserva) {
+        Reserva reserva = activas.remove(idReserva);
+        if (reserva == null) {
+            throw new NotFoundException("Reserva", idReserva.toString());
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        soltarUnidades(reserva);
+                    } else {
+                        restituir(reserva);
+                    }
+                }
+            });
+        } else {
+            soltarUnidades(reserva);
+        }
+        return reserva.aDto();
+    }
+
+    private ReentrantLock bloqueo(Integer idProducto) {
+        return bloqueos[franja(idProducto)];
+    }
+
+    private int franja(Integer idProducto) {
+        return Math.floorMod(idProducto, bloqueos.length);
+    }
+
+    private Reserva buscar(UUID idReserva) {
+        Reserva reserva = activas.get(idReserva);
+        if (reserva == null) {
+            throw new NotFoundException("Reserva", idReserva.toString());
+        }
+        return reserva;
+    }
+
+    private void restituir(Reserva reserva) {
+        if (reserva.getDelay(TimeUnit.NANOSECONDS) <= 0) {
+            soltarUnidades(reserva);
+            return;
+        }
+        activas.put(reserva.id, reserva);
+        // El hilo de vencimientos pudo haberla descartado mientras estaba retirada; encolarla
+        // de nuevo es inocuo porque solo la primera salida la encuentra activa.
+        vencimientos.offer(reserva);
+    }
+
+    private void soltarUnidades(Reserva reserva) {
+        reservadas.computeIfPresent(reserva.idProducto, (id, retenidas) -> {
+            int restantes = retenidas - reserva.cantidad;
+            return restantes > 0 ? restantes : null;
+        });
+    }
+
+    private void procesarVencimientos() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Reserva reserva = vencimientos.take();
+                if (activas.remove(reserva.id, reserva)) {
+                    soltarUnidades(reserva);
+                    vencidas.increment();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Fallo al liberar una reserva vencida", e);
+            }
+        }
+    }
+
+    private static final class Reserva implements Delayed {
+
+        private final UUID id;
+        private final Integer idProducto;
+        private final int cantidad;
+        private final Instant venceEn;
+        private final long venceNanos;
+
+        Reserva(UUID id, Integer idProducto, int cantidad, Duration ttl) {
+            this.id = id;
+            this.idProducto = idProducto;
+            this.cantidad = cantidad;
+            this.venceEn = Instant.now().plus(ttl);
+            this.venceNanos = System.nanoTime() + ttl.toNanos();
+        }
+
+        ReservaStock aDto() {
+            return new ReservaStock(id, idProducto, cantidad, venceEn);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(venceNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed otro) {
+            if (otro instanceof Reserva reserva) {
+                return Long.compare(venceNanos - reserva.venceNanos, 0);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), otro.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -0,0 +1,733 @@
+package com.gestorproductos.inventario.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gestorproductos.inventario.exception.InsufficientStockException;
+import com.gestorproductos.inventario.exception.NotFoundException;
+import com.gestorproductos.inventario.model.EstadoProducto;
+import com.gestorproductos.inventario.model.Producto;
+import com.gestorproductos.inventario.repository.ProductoJdbcRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Libro de stock en memoria para las disminuciones: cada producto tiene una celda que se
+ * decrementa con CAS, cada movimiento se asegura en un WAL antes de aceptarse y un volcado
+ * periódico aplica los deltas en un batch JDBC.
+ *
+ * <p>Con el libro habilitado la celda es la única referencia para aceptar una disminución (las
+ * de JPA también la descuentan con {@link #apartar}), así que el volcado nunca deja la fila en
+ * negativo. {@code stock_ledger_aplicado} hace idempotente la recuperación, y el outbox recibe
+ * el cambio en la transacción del volcado, no en la de cada disminución.
+ */
+@Component
+public class StockLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(StockLedger.class);
+
+    private static final String PREFIJO_SEGMENTO = "stock-";
+    private static final String EXTENSION_SEGMENTO = ".wal";
+    private static final int TAMANO_REGISTRO = Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private static final String SQL_CARGAR_STOCK = "SELECT stock_actual FROM productos WHERE id_producto = ?";
+    private static final String SQL_APLICAR_DELTA = "UPDATE productos SET "
+            + "stock_actual = stock_actual + ?, "
+            + "estado_producto = CASE WHEN stock_actual + ? = 0 THEN " + EstadoProducto.AGOTADO.getCodigo()
+            + " ELSE estado_producto END, "
+            + "version = version + 1 "
+            + "WHERE id_producto = ? AND stock_actual + ? >= 0";
+    private static final String SQL_REGISTRAR_APLICADO = "INSERT INTO stock_ledger_aplicado (id_producto, ultima_secuencia) "
+            + "VALUES (?, ?) ON CONFLICT (id_producto) DO UPDATE SET ultima_secuencia = "
+            + "GREATEST(stock_ledger_aplicado.ultima_secuencia, EXCLUDED.ultima_secuencia)";
+    private static final String SQL_VOLCADOS = "SELECT id_producto, nombre_producto, descripcion, precio_venta, "
+            + "costo_compra, stock_actual, estado_producto, version FROM productos WHERE id_producto = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheSegundoNivel cacheSegundoNivel;
+    private final RegistroOutbox registroOutbox;
+    private final ProductoCache productoCache;
+    private final boolean habilitado;
+    private final Path directorio;
+
+    private final Map<Integer, Celda> celdas = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock rotacion = new ReentrantReadWriteLock();
+    private final ReentrantLock escrituraWal = new ReentrantLock();
+    private final ReentrantLock forzadoWal = new ReentrantLock();
+    private final ReentrantLock volcado = new ReentrantLock();
+    private final ByteBuffer bufferRegistro = ByteBuffer.allocate(TAMANO_REGISTRO);
+    private final AtomicLong secuencia = new AtomicLong();
+    // Última secuencia cubierta por un fsync del WAL.
+    private volatile long secuenciaForzada;
+    // Un movimiento cuyo fsync falló no pudo anularse en el WAL: la recuperación podría volver
+    // a aplicarlo, así que no se aceptan más movimientos hasta revisar el disco y reiniciar.
+    private volatile boolean walInvalidado;
+    private final List<Path> segmentosRetirados = new ArrayList<>();
+
+    private FileChannel segmentoActual;
+    private Path rutaSegmentoActual;
+    private long numeroSegmento;
+
+    public StockLedger(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            CacheSegundoNivel cacheSegundoNivel, RegistroOutbox registroOutbox, ProductoCache productoCache,
+            @Value("${inventario.stock.ledger.habilitado:false}") boolean habilitado,
+            @Value("${inventario.stock.ledger.directorio:./data/stock-ledger}") String directorio) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheSegundoNivel = cacheSegundoNivel;
+        this.registroOutbox = registroOutbox;
+        this.productoCache = productoCache;
+        this.habilitado = habilitado;
+        this.directorio = Paths.get(directorio);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Stock en memoria del producto, que incluye las disminuciones todavía no volcadas, o
+     * {@code null} si el libro no tiene celda para ese producto.
+     */
+    public Integer stockEnMemoria(Integer idProducto) {
+        Celda celda = celdas.get(idProducto);
+        return celda != null ? celda.stock.get() : null;
+    }
+
+    /**
+     * Lleva la instantánea al stock en memoria del producto, si el libro tiene celda para él. La
+     * secuencia se lee antes que el stock, así que toda disminución con secuencia menor o igual
+     * ya está incluida.
+     */
+    public void superponerStockEnMemoria(Producto producto) {
+        Celda celda = celdas.get(producto.getIdProducto());
+        if (celda == null) {
+            return;
+        }
+        producto.setSecuenciaLibro(secuencia.get());
+        producto.setStockActual(celda.stock.get());
+        if (producto.getStockActual() == 0) {
+            producto.setEstadoProducto(EstadoProducto.AGOTADO);
+        }
+    }
+
+    @PostConstruct
+    void iniciar() throws IOException {
+        if (!habilitado) {
+            return;
+        }
+        Files.createDirectories(directorio);
+        recuperar();
+        abrirSegmento(numeroSegmento + 1);
+        log.info("Libro de stock habilitado. WAL en {}, secuencia inicial {}", directorio.toAbsolutePath(), secuencia.get());
+    }
+
+    @PreDestroy
+    void detener() throws IOException {
+        if (!habilitado) {
+            return;
+        }
+        volcarPendientes();
+        escrituraWal.lock();
+        try {
+            if (segmentoActual != null) {
+                segmentoActual.close();
+            }
+        } finally {
+            escrituraWal.unlock();
+        }
+    }
+
+    /**
+     * Disminuye el stock del producto en memoria y devuelve el stock resultante junto con la
+     * secuencia del movimiento. El movimiento queda registrado en el WAL antes de retornar; si
+     * la transacción actual se revierte, se registra un movimiento compensatorio que devuelve
+     * las unidades.
+     */
+    public Disminucion disminuir(Integer idProducto, int cantidad) {
+        return disminuir(idProducto, cantidad, 0);
+    }
+
+    /**
+     * Como {@link #disminuir(Integer, int)}, pero exige que queden al menos {@code reservado}
+     * unidades después del movimiento.
+     */
+    public Disminucion disminuir(Integer idProducto, int cantidad, int reservado) {
+        int actual;
+        long seq;
+        rotacion.readLock().lock();
+        try {
+            Celda celda = celda(idProducto);
+            // El descuento y la secuencia se toman bajo el mismo bloqueo: entre disminuciones de
+            // un producto, una secuencia mayor es siempre un stock posterior.
+            celda.bloqueo.lock();
+            try {
+                do {
+                    actual = celda.stock.get();
+                    if (actual - reservado < cantidad) {
+                        throw new InsufficientStockException(Math.max(actual - reservado, 0), cantidad);
+                    }
+                } while (!celda.stock.compareAndSet(actual, actual - cantidad));
+                try {
+                    seq = anotar(celda, idProducto, -cantidad);
+                } catch (IOException e) {
+                    celda.stock.addAndGet(cantidad);
+                    throw new UncheckedIOException("No se pudo registrar el movimiento de stock en el WAL", e);
+                }
+            } finally {
+                celda.bloqueo.unlock();
+            }
+            try {
+                asegurar(celda, idProducto, -cantidad, seq);
+            } catch (IOException e) {
+                celda.stock.addAndGet(cantidad);
+                throw new UncheckedIOException("No se pudo registrar el movimiento de stock en el WAL", e);
+            }
+        } finally {
+            rotacion.readLock().unlock();
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        compensar(idProducto, cantidad);
+                    }
+                }
+            });
+        }
+        return new Disminucion(actual - cantidad, seq);
+    }
+
+    /**
+     * Descuenta de la celda una disminución que la transacción actual escribe por JPA, con la
+     * misma validación que {@link #disminuir(Integer, int, int)}. {@code credito} son las
+     * unidades que la misma transacción ya sumó al producto y que la celda todavía no refleja.
+     * Si la transacción se revierte, las unidades vuelven a la celda.
+     */
+    public void apartar(Integer idProducto, int cantidad, int reservado, int credito) {
+        if (!habilitado) {
+            return;
+        }
+        Celda celda = celda(idProducto);
+        int actual;
+        do {
+            actual = celda.stock.get();
+            if (actual + credito - reservado < cantidad) {
+                throw new InsufficientStockException(Math.max(actual + credito - reservado, 0), cantidad);
+            }
+        } while (!celda.stock.compareAndSet(actual, actual - cantidad));
+        devolverSiSeRevierte(celda, cantidad);
+    }
+
+    /**
+     * Deja en cero la celda del producto antes de que la transacción actual lo pase a agotado,
+     * para que ninguna disminución del libro se acepte sobre unidades que van a descartarse. Se
+     * debe llamar antes de {@link #volcar(Integer)}, que así incluye todas las ventas previas.
+     */
+    public void agotar(Integer idProducto) {
+        if (!habilitado) {
+            return;
+        }
+        Celda celda = celda(idProducto);
+        devolverSiSeRevierte(celda, celda.stock.getAndSet(0));
+    }
+
+    /**
+     * Aplica en la transacción actual los deltas pendientes del producto, para que una lectura
+     * posterior de la entidad vea el stock real. Si la transacción se revierte, los deltas
+     * vuelven a quedar pendientes.
+     */
+    public void volcar(Integer idProducto) {
+        if (!habilitado) {
+            return;
+        }
+        Celda celda = celdas.get(idProducto);
+        if (celda == null) {
+            return;
+        }
+        Pendiente pendiente = celda.drenar(idProducto);
+        if (pendiente == null) {
+            return;
+        }
+        List<Pendiente> rechazados;
+        try {
+            rechazados = aplicar(List.of(pendiente));
+        } catch (RuntimeException e) {
+            celda.devolver(pendiente);
+            throw e;
+        }
+        if (!rechazados.isEmpty()) {
+            celda.devolver(pendiente);
+            throw new IllegalStateException("El volcado del libro dejaría en negativo el stock del producto " + idProducto);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        celda.devolver(pendiente);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Ajusta el stock en memoria del producto una vez confirmada la transacción actual, para
+     * reflejar cambios hechos por la ruta JPA (reposición, paso a agotado).
+     */
+    public void sincronizar(Integer idProducto, IntUnaryOperator ajuste) {
+        if (!habilitado) {
+            return;
+        }
+        Runnable aplicarAjuste = () -> {
+            Celda celda = celdas.get(idProducto);
+            if (celda != null) {
+                celda.stock.updateAndGet(ajuste);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicarAjuste.run();
+                }
+            });
+        } else {
+            aplicarAjuste.run();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventario.stock.ledger.intervalo-volcado-ms:200}")
+    public void volcarPendientes() {
+        if (!habilitado) {
+            return;
+        }
+        // El volcado programado y el que se pide antes de reconciliar no deben solaparse.
+        volcado.lock();
+        try {
+            volcarLote();
+        } finally {
+            volcado.unlock();
+        }
+    }
+
+    private void volcarLote() {
+        List<Pendiente> lote = new ArrayList<>();
+        List<Path> segmentosCubiertos;
+        rotacion.writeLock().lock();
+        try {
+            celdas.forEach((id, celda) -> {
+                Pendiente pendiente = celda.drenar(id);
+                if (pendiente != null) {
+                    lote.add(pendiente);
+                }
+            });
+            if (lote.isEmpty() && segmentosRetirados.isEmpty()) {
+                return;
+            }
+            if (!lote.isEmpty()) {
+                segmentosRetirados.add(rotarSegmento());
+            }
+            segmentosCubiertos = new ArrayList<>(segmentosRetirados);
+        } catch (IOException e) {
+            lote.forEach(p -> celdas.get(p.idProducto()).devolver(p));
+            throw new UncheckedIOException("No se pudo rotar el segmento del WAL", e);
+        } finally {
+            rotacion.writeLock().unlock();
+        }
+
+        List<Pendiente> rechazados;
+        try {
+            rechazados = !lote.isEmpty() ? aplicar(lote) : List.of();
+        } catch (RuntimeException e) {
+            lote.forEach(p -> celdas.get(p.idProducto()).devolver(p));
+            log.error("Fallo al volcar {} productos del libro de stock; se reintentará", lote.size(), e);
+            return;
+        }
+        if (!rechazados.isEmpty()) {
+            // Los segmentos retirados siguen siendo la única copia durable de estos deltas.
+            rechazados.forEach(p -> celdas.get(p.idProducto()).devolver(p));
+            log.error("El volcado dejaría stock negativo en los productos {}; sus deltas quedan pendientes",
+                    rechazados.stream().map(Pendiente::idProducto).toList());
+            return;
+        }
+
+        rotacion.writeLock().lock();
+        try {
+            for (Path segmento : segmentosCubiertos) {
+                Files.deleteIfExists(segmento);
+            }
+            segmentosRetirados.removeAll(segmentosCubiertos);
+        } catch (IOException e) {
+            log.warn("No se pudieron eliminar segmentos del WAL ya aplicados", e);
+        } finally {
+            rotacion.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Escribe el movimiento en el WAL, lo suma a los deltas pendientes de la celda y espera a que
+     * sea durable. La espera del fsync se hace fuera del bloqueo de la celda.
+     */
+    private void registrarMovimiento(Celda celda, Integer idProducto, int delta) throws IOException {
+        long seq;
+        celda.bloqueo.lock();
+        try {
+            seq = anotar(celda, idProducto, delta);
+        } finally {
+            celda.bloqueo.unlock();
+        }
+        asegurar(celda, idProducto, delta, seq);
+    }
+
+    // Con el bloqueo de la celda tomado.
+    private long anotar(Celda celda, Integer idProducto, int delta) throws IOException {
+        long seq = escribirRegistro(idProducto, delta);
+        celda.pendiente += delta;
+        celda.ultimaSecuencia = seq;
+        return seq;
+    }
+
+    /**
+     * Espera a que el registro {@code seq} sea durable. Un fsync fallido no garantiza que el
+     * registro no haya llegado al disco, así que antes de que el llamador deshaga el movimiento
+     * en memoria se escribe y fuerza un registro de signo contrario que lo anula en el volcado y
+     * en la recuperación.
+     */
+    private void asegurar(Celda celda, Integer idProducto, int delta, long seq) throws IOException {
+        try {
+            forzarHasta(seq);
+        } catch (IOException e) {
+            boolean anotada = false;
+            try {
+                long anulacion;
+                celda.bloqueo.lock();
+                try {
+                    anulacion = anotar(celda, idProducto, -delta);
+                    anotada = true;
+                } finally {
+                    celda.bloqueo.unlock();
+                }
+                forzarHasta(anulacion);
+            } catch (IOException sinAnular) {
+                e.addSuppressed(sinAnular);
+                if (!anotada) {
+                    celda.bloqueo.lock();
+                    try {
+                        celda.pendiente -= delta;
+                    } finally {
+                        celda.bloqueo.unlock();
+                    }
+                }
+                walInvalidado = true;
+                log.error("No se pudo anular en el WAL el movimiento {} del producto {}; la recuperación podría "
+                        + "volver a aplicarlo. El libro de stock no acepta más movimientos", seq, idProducto, e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Devuelve a la celda una disminución ya registrada en el WAL cuya transacción no se
+     * confirmó, con un registro de signo contrario para que el volcado y la recuperación la
+     * anulen también.
+     */
+    private void compensar(Integer idProducto, int cantidad) {
+        rotacion.readLock().lock();
+        try {
+            Celda celda = celdas.get(idProducto);
+            registrarMovimiento(celda, idProducto, cantidad);
+            celda.stock.addAndGet(cantidad);
+        } catch (IOException e) {
+            log.error("No se pudo compensar en el WAL la disminución de {} unidades del producto {}", cantidad,
+                    idProducto, e);
+        } finally {
+            rotacion.readLock().unlock();
+        }
+    }
+
+    /**
+     * Celda del producto, cargada desde la base si todavía no existe. La consulta se hace fuera
+     * de {@code computeIfAbsent} para no bloquear el bin del mapa (ni fijar el hilo portador de
+     * un hilo virtual) durante una llamada JDBC; si dos hilos la cargan a la vez, gana la
+     * primera en publicarse.
+     */
+    private Celda celda(Integer idProducto) {
+        Celda celda = celdas.get(idProducto);
+        if (celda != null) {
+            return celda;
+        }
+        Celda cargada = cargarCelda(idProducto);
+        Celda existente = celdas.putIfAbsent(idProducto, cargada);
+        return existente != null ? existente : cargada;
+    }
+
+    private static void devolverSiSeRevierte(Celda celda, int cantidad) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    celda.stock.addAndGet(cantidad);
+                }
+            }
+        });
+    }
+
+    private Celda cargarCelda(Integer idProducto) {
+        List<Integer> stock = jdbcTemplate.queryForList(SQL_CARGAR_STOCK, Integer.class, idProducto);
+        if (stock.isEmpty()) {
+            throw new NotFoundException("Producto", idProducto.toString());
+        }
+        return new Celda(stock.get(0));
+    }
+
+    /**
+     * Aplica los deltas en una transacción y devuelve los que no se aplicaron porque dejarían el
+     * stock en negativo; para esos no se avanza la secuencia aplicada. Los productos volcados
+     * se registran en el outbox con el stock resultante y, al confirmarse, reemplazan su
+     * instantánea en {@link ProductoCache} con la nueva versión.
+     */
+    private List<Pendiente> aplicar(List<Pendiente> lote) {
+        return transactionTemplate.execute(status -> {
+            int[][] filas = jdbcTemplate.batchUpdate(SQL_APLICAR_DELTA, lote, lote.size(), (ps, p) -> {
+                ps.setInt(1, p.delta());
+                ps.setInt(2, p.delta());
+                ps.setInt(3, p.idProducto());
+                ps.setInt(4, p.delta());
+            });
+            List<Pendiente> aplicados = new ArrayList<>(lote.size());
+            List<Pendiente> rechazados = new ArrayList<>();
+            for (int i = 0; i < lote.size(); i++) {
+                (filas[0][i] == 0 ? rechazados : aplicados).add(lote.get(i));
+            }
+            jdbcTemplate.batchUpdate(SQL_REGISTRAR_APLICADO, aplicados, lote.size(), (ps, p) -> {
+                ps.setInt(1, p.idProducto());
+                ps.setLong(2, p.ultimaSecuencia());
+            });
+            List<Integer> ids = aplicados.stream().map(Pendiente::idProducto).toList();
+            cacheSegundoNivel.desalojarProductos(ids);
+            if (!ids.isEmpty()) {
+                List<Producto> productos = jdbcTemplate.query(SQL_VOLCADOS,
+                        ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", ids.toArray())),
+                        ProductoJdbcRepository.PRODUCTO_ROW_MAPPER);
+                for (Producto producto : productos) {
+                    registroOutbox.registrarVolcado(producto.getIdProducto(), producto.getVersion(),
+                            producto.getStockActual(), producto.getEstadoProducto());
+                }
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        for (Producto producto : productos) {
+                            superponerStockEnMemoria(producto);
+                            productoCache.actualizar(producto);
+                        }
+                    }
+                });
+            }
+            return rechazados;
+        });
+    }
+
+    private long escribirRegistro(Integer idProducto, int delta) throws IOException {
+        if (walInvalidado) {
+            throw new IOException("El WAL del libro de stock quedó invalidado por un fsync fallido");
+        }
+        escrituraWal.lock();
+        try {
+            long seq = secuencia.incrementAndGet();
+            bufferRegistro.clear();
+            bufferRegistro.putLong(seq).putInt(idProducto).putInt(delta).flip();
+            while (bufferRegistro.hasRemaining()) {
+                segmentoActual.write(bufferRegistro);
+            }
+            return seq;
+        } finally {
+            escrituraWal.unlock();
+        }
+    }
+
+    /**
+     * Espera a que el registro {@code seq} sea durable (group commit). El hilo que toma el turno
+     * fuerza el segmento con todos los registros escritos hasta ese momento; los que esperaban
+     * detrás encuentran su registro ya cubierto y retornan sin otro fsync, así que hay un fsync
+     * por tanda de movimientos y no uno por venta. La rotación no puede cerrar el segmento en
+     * medio, porque quien espera mantiene el bloqueo de lectura de {@code rotacion}.
+     */
+    private void forzarHasta(long seq) throws IOException {
+        if (secuenciaForzada >= seq) {
+            return;
+        }
+        forzadoWal.lock();
+        try {
+            if (secuenciaForzada >= seq) {
+                return;
+            }
+            long hasta;
+            FileChannel segmento;
+            escrituraWal.lock();
+            try {
+                hasta = secuencia.get();
+                segmento = segmentoActual;
+            } finally {
+                escrituraWal.unlock();
+            }
+            segmento.force(false);
+            secuenciaForzada = hasta;
+        } finally {
+            forzadoWal.unlock();
+        }
+    }
+
+    private Path rotarSegmento() throws IOException {
+        escrituraWal.lock();
+        try {
+            Path anterior = rutaSegmentoActual;
+            segmentoActual.close();
+            abrirSegmento(numeroSegmento + 1);
+            return anterior;
+        } finally {
+            escrituraWal.unlock();
+        }
+    }
+
+    private void abrirSegmento(long numero) throws IOException {
+        numeroSegmento = numero;
+        rutaSegmentoActual = directorio.resolve(String.format("%s%019d%s", PREFIJO_SEGMENTO, numero, EXTENSION_SEGMENTO));
+        segmentoActual = FileChannel.open(rutaSegmentoActual, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private void recuperar() throws IOException {
+        Map<Integer, Long> aplicado = new HashMap<>();
+        jdbcTemplate.query("SELECT id_producto, ultima_secuencia FROM stock_ledger_aplicado",
+                rs -> {
+                    aplicado.put(rs.getInt(1), rs.getLong(2));
+                });
+        long maxSecuencia = aplicado.values().stream().mapToLong(Long::longValue).max().orElse(0L);
+
+        List<Path> segmentos = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directorio,
+                PREFIJO_SEGMENTO + "*" + EXTENSION_SEGMENTO)) {
+            stream.forEach(segmentos::add);
+        }
+        segmentos.sort(null);
+
+        Map<Integer, Pendiente> porAplicar = new HashMap<>();
+        for (Path segmento : segmentos) {
+            ByteBuffer contenido = ByteBuffer.wrap(Files.readAllBytes(segmento));
+            // Un registro incompleto al final del segmento corresponde a una escritura interrumpida
+            // que nunca fue confirmada al cliente.
+            while (contenido.remaining() >= TAMANO_REGISTRO) {
+                long seq = contenido.getLong();
+                int idProducto = contenido.getInt();
+                int delta = contenido.getInt();
+                maxSecuencia = Math.max(maxSecuencia, seq);
+                if (seq <= aplicado.getOrDefault(idProducto, 0L)) {
+                    continue;
+                }
+                porAplicar.merge(idProducto, new Pendiente(idProducto, delta, seq),
+                        (a, b) -> new Pendiente(idProducto, a.delta() + b.delta(),
+                                Math.max(a.ultimaSecuencia(), b.ultimaSecuencia())));
+            }
+            numeroSegmento = Math.max(numeroSegmento, numeroDeSegmento(segmento));
+        }
+
+        List<Pendiente> rechazados = List.of();
+        if (!porAplicar.isEmpty()) {
+            rechazados = aplicar(new ArrayList<>(porAplicar.values()));
+            log.info("Recuperados {} productos con movimientos de stock pendientes del WAL", porAplicar.size());
+        }
+        secuencia.set(maxSecuencia);
+        if (!rechazados.isEmpty()) {
+            // Se conservan los segmentos para reintentar en el próximo arranque.
+            log.error("La recuperación dejaría stock negativo en los productos {}; se conservan los segmentos del WAL",
+                    rechazados.stream().map(Pendiente::idProducto).toList());
+            return;
+        }
+        for (Path segmento : segmentos) {
+            Files.deleteIfExists(segmento);
+        }
+    }
+
+    private static long numeroDeSegmento(Path segmento) {
+        String nombre = segmento.getFileName().toString();
+        return Long.parseLong(nombre.substring(PREFIJO_SEGMENTO.length(), nombre.length() - EXTENSION_SEGMENTO.length()));
+    }
+
+    /** Stock de la celda después de una disminución y secuencia del movimiento en el WAL. */
+    public record Disminucion(int stock, long secuencia) {
+    }
+
+    private record Pendiente(Integer idProducto, int delta, long ultimaSecuencia) {
+    }
+
+    private static final class Celda {
+
+        private final AtomicInteger stock;
+        private final ReentrantLock bloqueo = new ReentrantLock();
+        private int pendiente;
+        private long ultimaSecuencia;
+
+        private Celda(int stock) {
+            this.stock = new AtomicInteger(stock);
+        }
+
+        private Pendiente drenar(Integer idProducto) {
+            bloqueo.lock();
+            try {
+                if (pendiente == 0) {
+                    return null;
+                }
+                Pendiente resultado = new Pendiente(idProducto, pendiente, ultimaSecuencia);
+                pendiente = 0;
+                return resultado;
+            } finally {
+                bloqueo.unlock();
+            }
+        }
+
+        private void devolver(Pendiente drenado) {
+            bloqueo.lock();
+            try {
+                pendiente += drenado.delta();
+                ultimaSecuencia = Math.max(ultimaSecuencia, drenado.ultimaSecuencia());
+            } finally {
+                bloqueo.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.gestorproductos.inventario.service;
+
+import com.gestorproductos.inventario.model.Producto;
+
+/**
+ * Orden entre instantáneas de un mismo producto para las vistas en memoria que reciben los
+ * cambios fuera de orden. Manda la versión; a igual versión, la secuencia del libro de stock,
+ * porque las disminuciones del libro no incrementan la versión hasta el volcado.
+ */
+final class VersionesProducto {
+
+    private VersionesProducto() {
+    }
+
+    static boolean esMasReciente(Producto nuevo, Producto actual) {
+        return esMasReciente(nuevo.getVersion(), nuevo.getSecuenciaLibro(), actual.getVersion(),
+                actual.getSecuenciaLibro());
+    }
+
+    static boolean esMasReciente(Long version, long secuenciaLibro, Long versionActual, long secuenciaActual) {
+        if (version == null || versionActual == null) {
+            return true;
+        }
+        int comparacion = Long.compare(version, versionActual);
+        return comparacion > 0 || comparacion == 0 && secuenciaLibro >= secuenciaActual;
+    }
+}
@@ -0,0 +1,18 @@
+CREATE TABLE categorias_producto (
+    id_categoria INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre_categoria VARCHAR(100) NOT NULL,
+    descripcion TEXT,
+    version BIGINT,
+    CONSTRAINT uk_categorias_producto_nombre UNIQUE (nombre_categoria)
+);
+
+CREATE TABLE productos (
+    id_producto INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre_producto VARCHAR(255) NOT NULL,
+    descripcion TEXT,
+    precio_venta NUMERIC(10, 2) NOT NULL,
+    costo_compra NUMERIC(10, 2),
+    stock_actual INTEGER NOT NULL,
+    estado_producto VARCHAR(20) NOT NULL,
+    version BIGINT
+);
@@ -0,0 +1,8 @@
+-- findByEstadoProducto y findByEstadoProductoAndStockActualGreaterThan
+CREATE INDEX idx_productos_estado_stock ON productos (estado_producto, stock_actual);
+
+-- findByStockActualLessThan
+CREATE INDEX idx_productos_stock_actual ON productos (stock_actual);
+
+-- findByNombreProducto (el nombre no es único en el dominio, solo se indexa para búsqueda)
+CREATE INDEX idx_productos_nombre ON productos (nombre_producto);
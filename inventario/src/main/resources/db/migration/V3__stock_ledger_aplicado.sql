@@ -0,0 +1,5 @@
+-- Última secuencia del WAL del libro de stock aplicada por producto (recuperación idempotente)
+CREATE TABLE stock_ledger_aplicado (
+    id_producto INTEGER PRIMARY KEY,
+    ultima_secuencia BIGINT NOT NULL
+);
@@ -0,0 +1,7 @@
+-- Estado del producto como código compacto (ver EstadoProducto): 0 Activo, 1 Inactivo, 2 Agotado
+ALTER TABLE productos ALTER COLUMN estado_producto TYPE SMALLINT
+    USING CASE estado_producto
+        WHEN 'Activo' THEN 0
+        WHEN 'Inactivo' THEN 1
+        WHEN 'Agotado' THEN 2
+    END;
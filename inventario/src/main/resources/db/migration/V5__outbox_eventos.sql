@@ -0,0 +1,17 @@
+-- Outbox transaccional de cambios en productos y categorías. La posición la asigna el relay
+-- al publicar, en orden de confirmación, y es el offset con el que reanudan los consumidores.
+CREATE TABLE outbox_eventos (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    entidad VARCHAR(20) NOT NULL,
+    id_entidad INTEGER NOT NULL,
+    version BIGINT,
+    operacion VARCHAR(10) NOT NULL,
+    campos TEXT NOT NULL,
+    registrado_en TIMESTAMP WITH TIME ZONE NOT NULL,
+    posicion BIGINT,
+    publicado_en TIMESTAMP WITH TIME ZONE,
+    CONSTRAINT uk_outbox_eventos_posicion UNIQUE (posicion)
+);
+
+-- Eventos pendientes de publicar, en orden de inserción
+CREATE INDEX idx_outbox_eventos_pendientes ON outbox_eventos (id) WHERE posicion IS NULL;
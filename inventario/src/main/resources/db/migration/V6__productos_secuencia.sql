@@ -0,0 +1,10 @@
+-- Los ids de productos pasan de IDENTITY a una secuencia con incremento 50, que Hibernate
+-- reparte en bloques (pooled-lo) para poder insertar altas en lotes JDBC.
+ALTER TABLE productos ALTER COLUMN id_producto DROP IDENTITY;
+
+CREATE SEQUENCE productos_seq INCREMENT BY 50;
+SELECT setval('productos_seq', COALESCE(MAX(id_producto), 0) + 1, false) FROM productos;
+
+-- Las inserciones fuera de Hibernate siguen obteniendo id; cada una consume un bloque.
+ALTER TABLE productos ALTER COLUMN id_producto SET DEFAULT nextval('productos_seq');
+ALTER SEQUENCE productos_seq OWNED BY productos.id_producto;
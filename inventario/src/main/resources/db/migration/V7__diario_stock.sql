@@ -0,0 +1,61 @@
+-- Diario de movimientos de stock: una fila por aumento, disminución o cambio de estado, sin
+-- modificarlas después salvo la marca de agregación. Particionado por mes de registro para
+-- poder desprender (DETACH) o eliminar meses viejos sin borrar fila por fila.
+CREATE SEQUENCE movimientos_stock_id_seq;
+
+CREATE TABLE movimientos_stock (
+    id BIGINT NOT NULL DEFAULT nextval('movimientos_stock_id_seq'),
+    id_producto INTEGER NOT NULL,
+    origen SMALLINT NOT NULL,
+    cantidad INTEGER NOT NULL,
+    costo_unitario NUMERIC(10, 2),
+    stock_resultante INTEGER NOT NULL,
+    estado_anterior SMALLINT NOT NULL,
+    estado_nuevo SMALLINT NOT NULL,
+    registrado_en TIMESTAMP WITH TIME ZONE NOT NULL,
+    agregado BOOLEAN NOT NULL DEFAULT FALSE,
+    PRIMARY KEY (id, registrado_en)
+) PARTITION BY RANGE (registrado_en);
+
+ALTER SEQUENCE movimientos_stock_id_seq OWNED BY movimientos_stock.id;
+
+-- Historial de un producto por fecha
+CREATE INDEX idx_movimientos_stock_producto ON movimientos_stock (id_producto, registrado_en);
+
+-- Movimientos pendientes de sumar a los buckets horarios
+CREATE INDEX idx_movimientos_stock_pendientes ON movimientos_stock (id) WHERE NOT agregado;
+
+-- Red de seguridad si la aplicación no creó a tiempo la partición del mes
+CREATE TABLE movimientos_stock_default PARTITION OF movimientos_stock DEFAULT;
+
+-- Mes actual y siguiente (UTC); los próximos los crea la aplicación por adelantado
+DO $$
+DECLARE
+    inicio TIMESTAMP := date_trunc('month', now() AT TIME ZONE 'UTC');
+    desde TIMESTAMP;
+BEGIN
+    FOR i IN 0..1 LOOP
+        desde := inicio + make_interval(months => i);
+        EXECUTE format('CREATE TABLE movimientos_stock_%s PARTITION OF movimientos_stock '
+                || 'FOR VALUES FROM (%L) TO (%L)',
+                to_char(desde, 'YYYY_MM'),
+                desde AT TIME ZONE 'UTC',
+                (desde + INTERVAL '1 month') AT TIME ZONE 'UTC');
+    END LOOP;
+END $$;
+
+-- Totales por producto y hora (UTC). Las consultas de historial leen solo esta tabla; los
+-- totales diarios se obtienen sumando sus horas.
+CREATE TABLE movimientos_stock_hora (
+    id_producto INTEGER NOT NULL,
+    hora TIMESTAMP WITH TIME ZONE NOT NULL,
+    unidades_entrada BIGINT NOT NULL,
+    unidades_salida BIGINT NOT NULL,
+    costo_entradas NUMERIC(18, 2) NOT NULL,
+    unidades_costeadas BIGINT NOT NULL,
+    movimientos INTEGER NOT NULL,
+    PRIMARY KEY (id_producto, hora)
+);
+
+-- Historial de todo el catálogo por período
+CREATE INDEX idx_movimientos_stock_hora_hora ON movimientos_stock_hora (hora);
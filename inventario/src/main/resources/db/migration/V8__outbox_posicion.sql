@@ -0,0 +1,10 @@
+-- Última posición asignada por el relay del outbox. Se guarda aparte de los eventos para que
+-- la limpieza de publicados no haga retroceder las posiciones; la fila no se elimina nunca y
+-- su bloqueo serializa la asignación entre instancias del relay.
+CREATE TABLE outbox_posicion (
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    ultima_posicion BIGINT NOT NULL
+);
+
+INSERT INTO outbox_posicion (id, ultima_posicion)
+SELECT 1, COALESCE(MAX(posicion), 0) FROM outbox_eventos;
@@ -0,0 +1,124 @@
+package com.gestorproductos.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.gestorproductos.inventario.model.Producto;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Totales en memoria contra PostgreSQL real. Una reconciliación que empieza entre dos cambios
+ * de una misma transacción no debe bloquearla: la transacción ya está anotada como commit en
+ * curso y la reconciliación la espera.
+ */
+@SpringBootTest(properties = { "inventario.valoracion.intervalo-reconciliacion-ms=3600000",
+        "spring.jpa.show-sql=false" })
+@Testcontainers(disabledWithoutDocker = true)
+class AgregadosInventarioTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private AgregadosInventario agregadosInventario;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void unaReconciliacionEntreDosCambiosDeLaMismaTransaccionNoLaBloquea() throws Exception {
+        long productosPrevios = agregadosInventario.valoracion().productos();
+        long unidadesPrevias = agregadosInventario.unidades();
+        double desviosPrevios = meterRegistry.get("inventario.valoracion.desvios").counter().count();
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        try {
+            Future<?>[] reconciliacion = new Future<?>[1];
+            Future<?> transaccion = hilos.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                productoService.crear(producto(5));
+                // Corre en BEFORE_COMMIT entre las sincronizaciones de los dos cambios.
+                eventPublisher.publishEvent(new AntesDelSegundoCambio(() -> {
+                    reconciliacion[0] = hilos.submit(agregadosInventario::reconciliar);
+                    esperarPausa();
+                }));
+                productoService.crear(producto(7));
+            }));
+
+            transaccion.get(30, TimeUnit.SECONDS);
+            reconciliacion[0].get(30, TimeUnit.SECONDS);
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        assertThat(agregadosInventario.valoracion().productos()).isEqualTo(productosPrevios + 2);
+        assertThat(agregadosInventario.unidades()).isEqualTo(unidadesPrevias + 12);
+        assertThat(meterRegistry.get("inventario.valoracion.desvios").counter().count()).isEqualTo(desviosPrevios);
+    }
+
+    /** Da tiempo a que la reconciliación quede esperando a los commits en curso. */
+    private static void esperarPausa() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Producto producto(int stock) {
+        Producto producto = new Producto();
+        producto.setNombreProducto("Agregado " + System.nanoTime());
+        producto.setPrecioVenta(new BigDecimal("10.00"));
+        producto.setCostoCompra(new BigDecimal("8.00"));
+        producto.setStockActual(stock);
+        return producto;
+    }
+
+    record AntesDelSegundoCambio(Runnable accion) {
+    }
+
+    @TestConfiguration
+    static class ConfiguracionPausa {
+
+        @Bean
+        OyenteAntesDelSegundoCambio oyenteAntesDelSegundoCambio() {
+            return new OyenteAntesDelSegundoCambio();
+        }
+    }
+
+    static class OyenteAntesDelSegundoCambio {
+
+        @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+        void alPublicarse(AntesDelSegundoCambio evento) {
+            evento.accion().run();
+        }
+    }
+}
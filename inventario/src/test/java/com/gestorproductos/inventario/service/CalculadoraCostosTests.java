@@ -0,0 +1,102 @@
+package com.gestorproductos.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.constraints.IntRange;
+
+class CalculadoraCostosTests {
+
+    @Property(tries = 5000)
+    void costoPromedioCoincideConBigDecimal(@ForAll("costosColumna") BigDecimal costoAnterior,
+            @ForAll @IntRange(min = 0, max = Integer.MAX_VALUE / 2) int stockAnterior,
+            @ForAll("costosColumna") BigDecimal costoNuevo,
+            @ForAll @IntRange(min = 1, max = Integer.MAX_VALUE / 2) int cantidad) {
+        assertThat(CalculadoraCostos.costoPromedio(costoAnterior, stockAnterior, costoNuevo, cantidad))
+                .isEqualTo(costoPromedioOriginal(costoAnterior, stockAnterior, costoNuevo, cantidad));
+    }
+
+    @Property(tries = 2000)
+    void costoPromedioCoincideConCualquierEscala(@ForAll("costosLibres") BigDecimal costoAnterior,
+            @ForAll @IntRange(min = 0, max = 1_000_000) int stockAnterior,
+            @ForAll("costosLibres") BigDecimal costoNuevo,
+            @ForAll @IntRange(min = 1, max = 1_000_000) int cantidad) {
+        assertThat(CalculadoraCostos.costoPromedio(costoAnterior, stockAnterior, costoNuevo, cantidad))
+                .isEqualTo(costoPromedioOriginal(costoAnterior, stockAnterior, costoNuevo, cantidad));
+    }
+
+    @Property(tries = 2000)
+    void costoPromedioDesbordadoRecurreABigDecimal(@ForAll("costosEnormes") BigDecimal costoAnterior,
+            @ForAll @IntRange(min = 1, max = Integer.MAX_VALUE / 2) int stockAnterior,
+            @ForAll("costosEnormes") BigDecimal costoNuevo,
+            @ForAll @IntRange(min = 1, max = Integer.MAX_VALUE / 2) int cantidad) {
+        assertThat(CalculadoraCostos.costoPromedio(costoAnterior, stockAnterior, costoNuevo, cantidad))
+                .isEqualTo(costoPromedioOriginal(costoAnterior, stockAnterior, costoNuevo, cantidad));
+    }
+
+    @Property(tries = 2000)
+    void costoAnteriorNuloCuentaComoCero(@ForAll @IntRange(min = 0, max = 1_000_000) int stockAnterior,
+            @ForAll("costosColumna") BigDecimal costoNuevo,
+            @ForAll @IntRange(min = 1, max = 1_000_000) int cantidad) {
+        assertThat(CalculadoraCostos.costoPromedio(null, stockAnterior, costoNuevo, cantidad))
+                .isEqualTo(costoPromedioOriginal(BigDecimal.ZERO, stockAnterior, costoNuevo, cantidad));
+    }
+
+    @Property(tries = 5000)
+    void precioVentaCoincideConBigDecimal(@ForAll("costosColumna") BigDecimal costo) {
+        assertThat(CalculadoraCostos.precioVenta(costo)).isEqualTo(precioVentaOriginal(costo));
+    }
+
+    @Property(tries = 2000)
+    void precioVentaCoincideConCualquierMagnitud(@ForAll("costosEnormes") BigDecimal costo) {
+        assertThat(CalculadoraCostos.precioVenta(costo)).isEqualTo(precioVentaOriginal(costo));
+    }
+
+    /** Importes que caben en una columna {@code precision = 10, scale = 2}. */
+    @Provide
+    Arbitrary<BigDecimal> costosColumna() {
+        return Arbitraries.bigDecimals()
+                .between(new BigDecimal("0.01"), new BigDecimal("99999999.99"))
+                .ofScale(2)
+                .edgeCases(config -> config.add(new BigDecimal("0.01"), new BigDecimal("0.05"),
+                        new BigDecimal("99999999.99")));
+    }
+
+    /** Importes como los que puede traer una solicitud: de cero a seis decimales. */
+    @Provide
+    Arbitrary<BigDecimal> costosLibres() {
+        return Arbitraries.integers().between(0, 6).flatMap(escala -> Arbitraries.bigDecimals()
+                .between(new BigDecimal("0.000001"), new BigDecimal("99999999.99"))
+                .ofScale(escala)
+                .filter(valor -> valor.signum() > 0));
+    }
+
+    @Provide
+    Arbitrary<BigDecimal> costosEnormes() {
+        return Arbitraries.bigDecimals()
+                .between(new BigDecimal("1000000000000.00"), new BigDecimal("99999999999999999999.99"))
+                .ofScale(2);
+    }
+
+    // Algoritmo previo de ProductoService.aplicarAumentoStock, copiado tal cual como referencia.
+    private static BigDecimal costoPromedioOriginal(BigDecimal costoAnterior, int stockAnterior,
+            BigDecimal nuevoCostoCompra, int cantidad) {
+        BigDecimal costoTotalAnterior = costoAnterior.multiply(new BigDecimal(stockAnterior));
+        BigDecimal costoTotalNuevo = nuevoCostoCompra.multiply(new BigDecimal(cantidad));
+        BigDecimal costoTotalFinal = costoTotalAnterior.add(costoTotalNuevo);
+
+        int stockFinal = stockAnterior + cantidad;
+        return costoTotalFinal.divide(new BigDecimal(stockFinal), 2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal precioVentaOriginal(BigDecimal costoPromedio) {
+        return costoPromedio.multiply(BigDecimal.ONE.add(new BigDecimal("0.25"))).setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,139 @@
+package com.gestorproductos.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import com.gestorproductos.inventario.dto.MovimientoStock;
+import com.gestorproductos.inventario.exception.InsufficientStockException;
+import com.gestorproductos.inventario.model.Producto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CombinadorMovimientosTests {
+
+    private static final int SOLICITUDES = 20;
+
+    private final ProductoService productoService = mock(ProductoService.class);
+    private final List<Integer> grupos = new CopyOnWriteArrayList<>();
+    private CombinadorMovimientos combinador;
+
+    @AfterEach
+    void detener() throws InterruptedException {
+        if (combinador != null) {
+            combinador.detener();
+        }
+    }
+
+    @Test
+    void lasSolicitudesConcurrentesSeAplicanEnGruposConResultadoPropio() throws Exception {
+        combinador = new CombinadorMovimientos(productoService, new SimpleMeterRegistry(), true,
+                Duration.ofMillis(200), 256);
+        AtomicInteger stock = new AtomicInteger(SOLICITUDES / 2);
+        when(productoService.aplicarEnGrupo(anyList())).thenAnswer(invocacion -> {
+            List<MovimientoStock> movimientos = invocacion.getArgument(0);
+            grupos.add(movimientos.size());
+            return aplicar(movimientos, stock);
+        });
+
+        List<Future<Producto>> resultados = new ArrayList<>();
+        ExecutorService hilos = Executors.newFixedThreadPool(SOLICITUDES);
+        try {
+            for (int i = 0; i < SOLICITUDES; i++) {
+                resultados.add(hilos.submit(() -> combinador.disminuirStock(1, 1)));
+            }
+            int aceptadas = 0;
+            int rechazadas = 0;
+            for (Future<Producto> resultado : resultados) {
+                try {
+                    resultado.get(30, TimeUnit.SECONDS);
+                    aceptadas++;
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(InsufficientStockException.class);
+                    rechazadas++;
+                }
+            }
+            assertThat(aceptadas).isEqualTo(SOLICITUDES / 2);
+            assertThat(rechazadas).isEqualTo(SOLICITUDES / 2);
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        assertThat(grupos.stream().mapToInt(Integer::intValue).sum()).isEqualTo(SOLICITUDES);
+        assertThat(grupos.size()).isLessThan(SOLICITUDES);
+        verify(productoService, never()).disminuirStock(1, 1);
+    }
+
+    @Test
+    void unConflictoDeVersionReintentaElGrupoUnaVez() {
+        combinador = new CombinadorMovimientos(productoService, new SimpleMeterRegistry(), true,
+                Duration.ofMillis(1), 256);
+        AtomicInteger stock = new AtomicInteger(5);
+        when(productoService.aplicarEnGrupo(anyList()))
+                .thenThrow(new OptimisticLockingFailureException("conflicto"))
+                .thenAnswer(invocacion -> aplicar(invocacion.getArgument(0), stock));
+
+        assertThat(combinador.disminuirStock(1, 2).getStockActual()).isEqualTo(3);
+        verify(productoService, times(2)).aplicarEnGrupo(anyList());
+    }
+
+    @Test
+    void unSegundoConflictoSeInformaAlSolicitante() {
+        combinador = new CombinadorMovimientos(productoService, new SimpleMeterRegistry(), true,
+                Duration.ofMillis(1), 256);
+        when(productoService.aplicarEnGrupo(anyList()))
+                .thenThrow(new OptimisticLockingFailureException("conflicto"));
+
+        assertThatThrownBy(() -> combinador.disminuirStock(1, 2))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        verify(productoService, times(2)).aplicarEnGrupo(anyList());
+    }
+
+    @Test
+    void deshabilitadoDelegaSinCombinar() {
+        combinador = new CombinadorMovimientos(productoService, new SimpleMeterRegistry(), false,
+                Duration.ofMillis(200), 256);
+
+        combinador.disminuirStock(1, 2);
+
+        verify(productoService).disminuirStock(1, 2);
+        verify(productoService, never()).aplicarEnGrupo(anyList());
+    }
+
+    /** Disminuciones sobre un stock compartido, con el rechazo individual de {@link ProductoService}. */
+    private static List<ProductoService.MovimientoAplicado> aplicar(List<MovimientoStock> movimientos,
+            AtomicInteger stock) {
+        List<ProductoService.MovimientoAplicado> aplicados = new ArrayList<>(movimientos.size());
+        for (MovimientoStock movimiento : movimientos) {
+            if (stock.get() < movimiento.cantidad()) {
+                aplicados.add(new ProductoService.MovimientoAplicado(null,
+                        new InsufficientStockException(stock.get(), movimiento.cantidad())));
+                continue;
+            }
+            Producto producto = new Producto(movimiento.idProducto());
+            producto.setStockActual(stock.addAndGet(-movimiento.cantidad()));
+            aplicados.add(new ProductoService.MovimientoAplicado(producto, null));
+        }
+        return aplicados;
+    }
+}
@@ -0,0 +1,179 @@
+package com.gestorproductos.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.gestorproductos.inventario.exception.InsufficientStockException;
+import com.gestorproductos.inventario.exception.NotFoundException;
+import com.gestorproductos.inventario.model.EstadoProducto;
+import com.gestorproductos.inventario.model.Producto;
+import com.gestorproductos.inventario.repository.ProductoRepository;
+
+/**
+ * Disminuciones concurrentes sobre un mismo producto contra PostgreSQL real. El modo atómico
+ * debe vender exactamente el stock disponible sin conflictos de versión; la ruta de lectura,
+ * modificación y escritura se ejecuta con la misma carga como referencia.
+ */
+@SpringBootTest(properties = { "inventario.stock.decremento-atomico=true", "spring.jpa.show-sql=false" })
+@Testcontainers(disabledWithoutDocker = true)
+class DisminucionStockAtomicaTests {
+
+    private static final int HILOS = 16;
+    private static final int INTENTOS_POR_HILO = 50;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Test
+    void lasDisminucionesConcurrentesVendenExactamenteElStock() throws Exception {
+        int stockInicial = 300;
+        Producto producto = crearProducto(stockInicial);
+
+        Resultado resultado = disminuirConcurrentemente(productoService, producto.getIdProducto());
+
+        assertThat(resultado.conflictos()).isZero();
+        assertThat(resultado.exitosas()).isEqualTo(stockInicial);
+        assertThat(resultado.sinStock()).isEqualTo(HILOS * INTENTOS_POR_HILO - stockInicial);
+
+        Producto persistido = productoRepository.findById(producto.getIdProducto()).orElseThrow();
+        assertThat(persistido.getStockActual()).isZero();
+        assertThat(persistido.getEstadoProducto()).isEqualTo(EstadoProducto.AGOTADO);
+        assertThat(persistido.getVersion()).isEqualTo(producto.getVersion() + stockInicial);
+    }
+
+    @Test
+    void devuelveLaFilaActualizada() {
+        Producto producto = crearProducto(10);
+
+        Producto actualizado = productoService.disminuirStock(producto.getIdProducto(), 4);
+
+        assertThat(actualizado.getStockActual()).isEqualTo(6);
+        assertThat(actualizado.getVersion()).isEqualTo(producto.getVersion() + 1);
+        assertThat(actualizado.getEstadoProducto()).isEqualTo(EstadoProducto.ACTIVO);
+        assertThat(actualizado.getNombreProducto()).isEqualTo(producto.getNombreProducto());
+    }
+
+    @Test
+    void sinStockSuficienteNoModificaLaFila() {
+        Producto producto = crearProducto(3);
+
+        assertThatThrownBy(() -> productoService.disminuirStock(producto.getIdProducto(), 5))
+                .isInstanceOf(InsufficientStockException.class);
+
+        Producto actual = productoRepository.findById(producto.getIdProducto()).orElseThrow();
+        assertThat(actual.getStockActual()).isEqualTo(3);
+        assertThat(actual.getVersion()).isEqualTo(producto.getVersion());
+    }
+
+    @Test
+    void unProductoInexistenteSeInformaComoNoEncontrado() {
+        assertThatThrownBy(() -> productoService.disminuirStock(Integer.MAX_VALUE, 1))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void respetaLasUnidadesReservadas() {
+        Producto producto = crearProducto(10);
+        productoService.reservarStock(producto.getIdProducto(), 8, null);
+
+        assertThatThrownBy(() -> productoService.disminuirStock(producto.getIdProducto(), 3))
+                .isInstanceOf(InsufficientStockException.class);
+        assertThat(productoService.disminuirStock(producto.getIdProducto(), 2).getStockActual()).isEqualTo(8);
+    }
+
+    @Nested
+    @TestPropertySource(properties = "inventario.stock.decremento-atomico=false")
+    class LecturaModificacionEscritura {
+
+        @Autowired
+        private ProductoService productoService;
+
+        @Test
+        void noPierdeActualizacionesPeroRechazaPorConflictos() throws Exception {
+            int stockInicial = 300;
+            Producto producto = crearProducto(stockInicial);
+
+            Resultado resultado = disminuirConcurrentemente(productoService, producto.getIdProducto());
+
+            Producto persistido = productoRepository.findById(producto.getIdProducto()).orElseThrow();
+            assertThat(persistido.getStockActual()).isEqualTo(stockInicial - resultado.exitosas());
+            assertThat(resultado.exitosas() + resultado.sinStock() + resultado.conflictos())
+                    .isEqualTo(HILOS * INTENTOS_POR_HILO);
+        }
+    }
+
+    private Producto crearProducto(int stock) {
+        Producto producto = new Producto();
+        producto.setNombreProducto("Contención " + System.nanoTime());
+        producto.setPrecioVenta(new BigDecimal("10.00"));
+        producto.setCostoCompra(new BigDecimal("8.00"));
+        producto.setStockActual(stock);
+        return productoService.crear(producto);
+    }
+
+    private static Resultado disminuirConcurrentemente(ProductoService servicio, Integer idProducto)
+            throws Exception {
+        AtomicInteger exitosas = new AtomicInteger();
+        AtomicInteger sinStock = new AtomicInteger();
+        AtomicInteger conflictos = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < HILOS; h++) {
+                tareas.add(hilos.submit(() -> {
+                    largada.await();
+                    for (int i = 0; i < INTENTOS_POR_HILO; i++) {
+                        try {
+                            servicio.disminuirStock(idProducto, 1);
+                            exitosas.incrementAndGet();
+                        } catch (InsufficientStockException e) {
+                            sinStock.incrementAndGet();
+                        } catch (ObjectOptimisticLockingFailureException e) {
+                            conflictos.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+        return new Resultado(exitosas.get(), sinStock.get(), conflictos.get());
+    }
+
+    private record Resultado(int exitosas, int sinStock, int conflictos) {
+    }
+}
@@ -0,0 +1,188 @@
+package com.gestorproductos.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.gestorproductos.inventario.dto.ResultadoImportacion;
+import com.gestorproductos.inventario.model.EventoOutbox;
+import com.gestorproductos.inventario.model.Producto;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * Importación masiva contra PostgreSQL real: las filas del catálogo y sus eventos de outbox
+ * deben llegar a la base en lotes JDBC, no con una sentencia por fila.
+ */
+@SpringBootTest(properties = { "inventario.importacion.tamano-lote=500",
+        "inventario.outbox.intervalo-relay-ms=3600000", "spring.jpa.show-sql=false" })
+@Testcontainers(disabledWithoutDocker = true)
+class ImportacionCatalogoTests {
+
+    private static final int FILAS = 1000;
+    private static final int TAMANO_LOTE = 500;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void limpiar() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        SentenciasEjecutadas.REGISTRO.limpiar();
+    }
+
+    @Test
+    void insertaProductosYEventosDeOutboxEnLotes() throws Exception {
+        long eventosPrevios = contarAltasEnOutbox();
+
+        ResultadoImportacion resultado = catalogoService.importarCsv(csv(FILAS));
+
+        assertThat(resultado.importadas()).isEqualTo(FILAS);
+        assertThat(resultado.rechazadas()).isZero();
+
+        // Hibernate: una sentencia preparada por lote más las consultas a la secuencia.
+        assertThat(estadisticas.getEntityStatistics(Producto.class.getName()).getInsertCount()).isEqualTo(FILAS);
+        assertThat(estadisticas.getPrepareStatementCount()).isLessThan(FILAS / 10);
+        assertThat(SentenciasEjecutadas.REGISTRO.insercionesEn("productos"))
+                .isNotEmpty()
+                .allMatch(ExecutionInfo::isBatch);
+
+        // Outbox: ninguna inserción por la entidad, un único lote JDBC por transacción.
+        assertThat(estadisticas.getEntityStatistics(EventoOutbox.class.getName()).getInsertCount()).isZero();
+        assertThat(contarAltasEnOutbox() - eventosPrevios).isEqualTo(FILAS);
+        assertThat(SentenciasEjecutadas.REGISTRO.insercionesEn("outbox_eventos"))
+                .hasSize(FILAS / TAMANO_LOTE)
+                .allSatisfy(ejecucion -> {
+                    assertThat(ejecucion.isBatch()).isTrue();
+                    assertThat(ejecucion.getBatchSize()).isEqualTo(TAMANO_LOTE);
+                });
+    }
+
+    @Test
+    void unLoteQueFallaEnLaBaseSoloRechazaLasFilasQueLoCausan() throws Exception {
+        String prefijo = "Reintento " + System.nanoTime() + " ";
+        // nombre_producto es VARCHAR(255): la validación del alta lo acepta y la base no.
+        String csv = "nombreProducto,precioVenta,costoCompra,stockActual\n"
+                + prefijo + "1,10.00,8.00,1\n"
+                + prefijo + "x".repeat(300) + ",10.00,8.00,1\n"
+                + prefijo + "3,10.00,8.00,1\n";
+
+        ResultadoImportacion resultado = catalogoService.importarCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(resultado.importadas()).isEqualTo(2);
+        assertThat(resultado.rechazadas()).isEqualTo(1);
+        assertThat(resultado.errores()).singleElement()
+                .satisfies(error -> assertThat(error.fila()).isEqualTo(2));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM productos WHERE nombre_producto LIKE ?",
+                Long.class, prefijo + "%")).isEqualTo(2);
+    }
+
+    private long contarAltasEnOutbox() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM outbox_eventos WHERE entidad = ? AND operacion = ?", Long.class,
+                EventoOutbox.ENTIDAD_PRODUCTO, EventoOutbox.OPERACION_ALTA);
+    }
+
+    private static ByteArrayInputStream csv(int filas) {
+        StringBuilder csv = new StringBuilder("nombreProducto,precioVenta,costoCompra,stockActual\n");
+        String prefijo = "Importado " + System.nanoTime() + " ";
+        for (int i = 0; i < filas; i++) {
+            csv.append(prefijo).append(i).append(",10.00,8.00,").append(i % 50).append('\n');
+        }
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TestConfiguration
+    static class ConfiguracionSentencias {
+
+        @Bean
+        static BeanPostProcessor registroSentenciasDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                        return ProxyDataSourceBuilder.create(dataSource)
+                                .name(beanName)
+                                .listener(SentenciasEjecutadas.REGISTRO)
+                                .build();
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    /** Ejecuciones JDBC observadas a través del proxy del {@link DataSource}. */
+    static final class SentenciasEjecutadas implements QueryExecutionListener {
+
+        static final SentenciasEjecutadas REGISTRO = new SentenciasEjecutadas();
+
+        private final List<Ejecucion> ejecuciones = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            for (QueryInfo queryInfo : queryInfoList) {
+                ejecuciones.add(new Ejecucion(queryInfo.getQuery().toLowerCase(Locale.ROOT), execInfo));
+            }
+        }
+
+        void limpiar() {
+            ejecuciones.clear();
+        }
+
+        List<ExecutionInfo> insercionesEn(String tabla) {
+            return ejecuciones.stream()
+                    .filter(ejecucion -> ejecucion.sql().startsWith("insert into " + tabla + " "))
+                    .map(Ejecucion::info)
+                    .toList();
+        }
+
+        private record Ejecucion(String sql, ExecutionInfo info) {
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.gestorproductos.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.gestorproductos.inventario.exception.PreconditionFailedException;
+import com.gestorproductos.inventario.model.Producto;
+
+/**
+ * Marcas de versión (ETag) con el libro de stock habilitado contra PostgreSQL real. La marca
+ * de la lectura, la de {@code If-None-Match} y la de {@code If-Match} deben coincidir aunque
+ * haya disminuciones sin volcar o el volcado acabe de incrementar la versión de la fila.
+ */
+@SpringBootTest(properties = { "inventario.stock.ledger.habilitado=true",
+        "inventario.stock.ledger.intervalo-volcado-ms=3600000", "spring.jpa.show-sql=false" })
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+class MarcasVersionTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void directorioLibro(DynamicPropertyRegistry registro) throws IOException {
+        Path directorio = Files.createTempDirectory("stock-ledger");
+        registro.add("inventario.stock.ledger.directorio", directorio::toString);
+    }
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void laMarcaCondicionalCoincideConLaDeLaLecturaAntesYDespuesDelVolcado() {
+        Producto producto = crearProducto(10);
+        productoService.disminuirStock(producto.getIdProducto(), 2);
+
+        String antes = productoService.marcaVersion(productoService.obtenerPorId(producto.getIdProducto()));
+        assertThat(productoService.obtenerMarcaVersion(producto.getIdProducto())).isEqualTo(antes);
+
+        stockLedger.volcarPendientes();
+
+        Producto volcado = productoService.obtenerPorId(producto.getIdProducto());
+        assertThat(volcado.getVersion()).isEqualTo(producto.getVersion() + 1);
+        assertThat(volcado.getStockActual()).isEqualTo(8);
+        String despues = productoService.marcaVersion(volcado);
+        assertThat(despues).isNotEqualTo(antes);
+        assertThat(productoService.obtenerMarcaVersion(producto.getIdProducto())).isEqualTo(despues);
+    }
+
+    @Test
+    void unaPrecondicionConLaMarcaLeidaSeAceptaConDisminucionesSinVolcar() {
+        Producto producto = crearProducto(10);
+        productoService.disminuirStock(producto.getIdProducto(), 2);
+        String marca = productoService.marcaVersion(productoService.obtenerPorId(producto.getIdProducto()));
+
+        Producto actualizado = productoService.aumentarStock(producto.getIdProducto(), 5, new BigDecimal("8.00"),
+                List.of(marca));
+
+        assertThat(actualizado.getStockActual()).isEqualTo(13);
+    }
+
+    @Test
+    void unaPrecondicionConUnaMarcaViejaFallaSinModificarElProducto() {
+        Producto producto = crearProducto(10);
+        String marca = productoService.marcaVersion(productoService.obtenerPorId(producto.getIdProducto()));
+        productoService.disminuirStock(producto.getIdProducto(), 1);
+
+        assertThatThrownBy(() -> productoService.aumentarStock(producto.getIdProducto(), 5, new BigDecimal("8.00"),
+                List.of(marca)))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThatThrownBy(() -> productoService.disminuirStock(producto.getIdProducto(), 1, List.of(marca)))
+                .isInstanceOf(PreconditionFailedException.class);
+
+        assertThat(productoService.obtenerPorId(producto.getIdProducto()).getStockActual()).isEqualTo(9);
+    }
+
+    @Test
+    void elControladorRespondeNoModificadoYPrecondicionFallidaConLaMismaMarca() throws Exception {
+        Producto producto = crearProducto(10);
+        String ruta = "/api/productos/" + producto.getIdProducto();
+        productoService.disminuirStock(producto.getIdProducto(), 2);
+
+        String etiqueta = mockMvc.perform(get(ruta))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(ruta).header(HttpHeaders.IF_NONE_MATCH, etiqueta))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etiqueta));
+
+        productoService.disminuirStock(producto.getIdProducto(), 1);
+        String actual = "\"" + productoService.obtenerMarcaVersion(producto.getIdProducto()) + "\"";
+
+        mockMvc.perform(patch(ruta + "/stock/disminuir")
+                        .header(HttpHeaders.IF_MATCH, etiqueta)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cantidad\": 1}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string(HttpHeaders.ETAG, actual));
+        mockMvc.perform(get(ruta).header(HttpHeaders.IF_NONE_MATCH, etiqueta))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, actual));
+    }
+
+    private Producto crearProducto(int stock) {
+        Producto producto = new Producto();
+        producto.setNombreProducto("Marca " + System.nanoTime());
+        producto.setPrecioVenta(new BigDecimal("10.00"));
+        producto.setCostoCompra(new BigDecimal("8.00"));
+        producto.setStockActual(stock);
+        return productoService.crear(producto);
+    }
+}
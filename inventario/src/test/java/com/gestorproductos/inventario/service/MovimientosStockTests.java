@@ -0,0 +1,68 @@
+package com.gestorproductos.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.gestorproductos.inventario.dto.MovimientoStock;
+import com.gestorproductos.inventario.dto.ResultadoMovimiento;
+import com.gestorproductos.inventario.model.Producto;
+
+/**
+ * Lote de movimientos de stock contra PostgreSQL real: cada línea informa su propio resultado en
+ * el orden recibido, y una línea rechazada no impide aplicar las demás.
+ */
+@SpringBootTest(properties = { "spring.jpa.show-sql=false" })
+@Testcontainers(disabledWithoutDocker = true)
+class MovimientosStockTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Test
+    void cadaLineaInformaSuResultadoSinDetenerAlResto() {
+        Integer primero = crearProducto(5).getIdProducto();
+        Integer segundo = crearProducto(2).getIdProducto();
+
+        List<ResultadoMovimiento> resultados = productoService.aplicarMovimientos(List.of(
+                new MovimientoStock(segundo, MovimientoStock.Tipo.DISMINUIR, 1, null),
+                new MovimientoStock(primero, MovimientoStock.Tipo.DISMINUIR, 3, null),
+                new MovimientoStock(segundo, MovimientoStock.Tipo.DISMINUIR, 5, null),
+                new MovimientoStock(Integer.MAX_VALUE, MovimientoStock.Tipo.AUMENTAR, 1, new BigDecimal("8.00")),
+                new MovimientoStock(primero, MovimientoStock.Tipo.AUMENTAR, 4, new BigDecimal("8.00"))));
+
+        assertThat(resultados)
+                .extracting(ResultadoMovimiento::indice, ResultadoMovimiento::exito, ResultadoMovimiento::stockActual)
+                .containsExactly(
+                        tuple(0, true, 1),
+                        tuple(1, true, 2),
+                        tuple(2, false, null),
+                        tuple(3, false, null),
+                        tuple(4, true, 6));
+        assertThat(productoService.obtenerPorId(primero).getStockActual()).isEqualTo(6);
+        assertThat(productoService.obtenerPorId(segundo).getStockActual()).isEqualTo(1);
+    }
+
+    private Producto crearProducto(int stock) {
+        Producto producto = new Producto();
+        producto.setNombreProducto("Movimiento " + System.nanoTime());
+        producto.setPrecioVenta(new BigDecimal("10.00"));
+        producto.setCostoCompra(new BigDecimal("8.00"));
+        producto.setStockActual(stock);
+        return productoService.crear(producto);
+    }
+}
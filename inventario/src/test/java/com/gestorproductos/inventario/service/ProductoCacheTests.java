@@ -0,0 +1,59 @@
+package com.gestorproductos.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.gestorproductos.inventario.model.Producto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProductoCacheTests {
+
+    private final ProductoCache cache = new ProductoCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+
+    @Test
+    void unaCargaConVersionAnteriorNoPisaUnCambioConfirmado() {
+        cache.actualizar(producto(3, 0, 7));
+
+        Producto obtenido = cache.obtener(1, id -> producto(2, 0, 10));
+
+        assertThat(obtenido.getVersion()).isEqualTo(3);
+        assertThat(obtenido.getStockActual()).isEqualTo(7);
+    }
+
+    @Test
+    void aIgualVersionGanaLaMayorSecuenciaDelLibro() {
+        cache.actualizar(producto(3, 12, 4));
+        cache.actualizar(producto(3, 11, 5));
+
+        assertThat(cache.obtener(1, id -> null).getStockActual()).isEqualTo(4);
+
+        cache.actualizar(producto(3, 13, 3));
+
+        assertThat(cache.obtener(1, id -> null).getStockActual()).isEqualTo(3);
+    }
+
+    @Test
+    void elVolcadoDelLibroReemplazaLasInstantaneasDeLaVersionAnterior() {
+        cache.actualizar(producto(3, 40, 2));
+
+        // El volcado incrementa la versión; su instantánea lleva el stock en memoria.
+        cache.actualizar(producto(4, 40, 2));
+        cache.actualizar(producto(3, 39, 3));
+
+        Producto obtenido = cache.obtener(1, id -> null);
+        assertThat(obtenido.getVersion()).isEqualTo(4);
+        assertThat(obtenido.getStockActual()).isEqualTo(2);
+    }
+
+    private static Producto producto(long version, long secuenciaLibro, int stock) {
+        Producto producto = new Producto(1);
+        producto.setVersion(version);
+        producto.setSecuenciaLibro(secuenciaLibro);
+        producto.setStockActual(stock);
+        return producto;
+    }
+}
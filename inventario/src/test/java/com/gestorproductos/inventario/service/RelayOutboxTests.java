@@ -0,0 +1,84 @@
+package com.gestorproductos.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.gestorproductos.inventario.dto.EventoCambio;
+import com.gestorproductos.inventario.model.EventoOutbox;
+import com.gestorproductos.inventario.model.Producto;
+
+/**
+ * Relay del outbox contra PostgreSQL real: los eventos llegan al destino en orden de inserción,
+ * con posiciones consecutivas entre lotes, y un evento publicado no vuelve a publicarse.
+ */
+@SpringBootTest(properties = { "inventario.outbox.intervalo-relay-ms=3600000", "inventario.outbox.tamano-lote=2",
+        "spring.jpa.show-sql=false" })
+@Testcontainers(disabledWithoutDocker = true)
+class RelayOutboxTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private RelayOutbox relayOutbox;
+
+    @Autowired
+    private DestinoCambiosMemoria destinoCambios;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Test
+    void publicaEnOrdenDeInsercionConPosicionesConsecutivas() {
+        List<EventoCambio> recibidos = new CopyOnWriteArrayList<>();
+        destinoCambios.suscribir(recibidos::addAll);
+        relayOutbox.publicarPendientes();
+        recibidos.clear();
+
+        Producto primero = crearProducto(10);
+        productoService.aumentarStock(primero.getIdProducto(), 5, new BigDecimal("9.00"));
+        Producto segundo = crearProducto(3);
+        productoService.aumentarStock(segundo.getIdProducto(), 1, new BigDecimal("9.00"));
+
+        relayOutbox.publicarPendientes();
+
+        // Cuatro eventos en lotes de dos: el relay sigue publicando hasta vaciar el outbox.
+        assertThat(recibidos)
+                .extracting(EventoCambio::id, EventoCambio::operacion)
+                .containsExactly(
+                        tuple(primero.getIdProducto(), EventoOutbox.OPERACION_ALTA),
+                        tuple(primero.getIdProducto(), EventoOutbox.OPERACION_CAMBIO),
+                        tuple(segundo.getIdProducto(), EventoOutbox.OPERACION_ALTA),
+                        tuple(segundo.getIdProducto(), EventoOutbox.OPERACION_CAMBIO));
+        for (int i = 1; i < recibidos.size(); i++) {
+            assertThat(recibidos.get(i).posicion()).isEqualTo(recibidos.get(i - 1).posicion() + 1);
+        }
+
+        recibidos.clear();
+        relayOutbox.publicarPendientes();
+
+        assertThat(recibidos).isEmpty();
+    }
+
+    private Producto crearProducto(int stock) {
+        Producto producto = new Producto();
+        producto.setNombreProducto("Relay " + System.nanoTime());
+        producto.setPrecioVenta(new BigDecimal("10.00"));
+        producto.setCostoCompra(new BigDecimal("8.00"));
+        producto.setStockActual(stock);
+        return productoService.crear(producto);
+    }
+}
@@ -0,0 +1,97 @@
+package com.gestorproductos.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import com.gestorproductos.inventario.dto.ReservaStock;
+import com.gestorproductos.inventario.exception.InsufficientStockException;
+import com.gestorproductos.inventario.exception.NotFoundException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ReservasStockTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReservasStock reservas = new ReservasStock(meterRegistry, Duration.ofMinutes(15),
+            Duration.ofHours(2), 4);
+
+    @AfterEach
+    void detener() {
+        reservas.detener();
+    }
+
+    @Test
+    void unaReservaVencidaSueltaSusUnidades() {
+        reservas.iniciar();
+        ReservaStock reserva = reservas.reservar(1, 3, Duration.ofMillis(100), () -> 5);
+
+        assertThatThrownBy(() -> reservas.reservar(1, 3, Duration.ofMinutes(1), () -> 5))
+                .isInstanceOf(InsufficientStockException.class);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> reservas.reservadas(1) == 0);
+        assertThatThrownBy(() -> reservas.obtener(reserva.idReserva())).isInstanceOf(NotFoundException.class);
+        assertThat(meterRegistry.get("inventario.reservas.vencidas").counter().count()).isEqualTo(1);
+        assertThat(reservas.reservar(1, 3, Duration.ofMinutes(1), () -> 5).cantidad()).isEqualTo(3);
+    }
+
+    @Test
+    void unaConfirmacionRevertidaDevuelveLaReservaALasActivas() {
+        ReservaStock reserva = reservas.reservar(1, 2, Duration.ofMinutes(1), () -> 5);
+
+        enTransaccion(TransactionSynchronization.STATUS_ROLLED_BACK, () -> reservas.consumir(reserva.idReserva()));
+
+        assertThat(reservas.obtener(reserva.idReserva())).isEqualTo(reserva);
+        assertThat(reservas.reservadas(1)).isEqualTo(2);
+
+        enTransaccion(TransactionSynchronization.STATUS_COMMITTED, () -> reservas.consumir(reserva.idReserva()));
+
+        assertThat(reservas.reservadas(1)).isZero();
+    }
+
+    @Test
+    void productosQueCompartenFranjaNoSeBloqueanEntreTransacciones() throws Exception {
+        // Con cuatro franjas, 1 y 5 comparten una y 2 y 6 otra; los ids llegan en orden cruzado.
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> transacciones = List.of(
+                    hilos.submit(() -> repetirBloqueos(List.of(1, 6))),
+                    hilos.submit(() -> repetirBloqueos(List.of(2, 5))));
+            for (Future<?> transaccion : transacciones) {
+                transaccion.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    private void repetirBloqueos(List<Integer> ids) {
+        for (int i = 0; i < 10_000; i++) {
+            enTransaccion(TransactionSynchronization.STATUS_COMMITTED, () -> reservas.bloquearHastaTerminar(ids));
+        }
+    }
+
+    private static void enTransaccion(int estadoFinal, Runnable accion) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            accion.run();
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), estadoFinal);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.gestorproductos.inventario.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.gestorproductos.inventario.dto.MovimientoStock;
+import com.gestorproductos.inventario.model.Producto;
+
+/**
+ * Libro de stock contra PostgreSQL real: una transacción revertida devuelve las unidades a la
+ * celda, y el arranque aplica una sola vez los movimientos del WAL que no llegaron a volcarse.
+ */
+@SpringBootTest(properties = { "inventario.stock.ledger.habilitado=true",
+        "inventario.stock.ledger.intervalo-volcado-ms=3600000", "spring.jpa.show-sql=false" })
+@Testcontainers(disabledWithoutDocker = true)
+class StockLedgerTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void directorioLibro(DynamicPropertyRegistry registro) throws IOException {
+        Path directorio = Files.createTempDirectory("stock-ledger");
+        registro.add("inventario.stock.ledger.directorio", directorio::toString);
+    }
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheSegundoNivel cacheSegundoNivel;
+
+    @Autowired
+    private RegistroOutbox registroOutbox;
+
+    @Autowired
+    private ProductoCache productoCache;
+
+    @Test
+    void unaDisminucionRevertidaDevuelveLasUnidadesALaCelda() {
+        Integer id = crearProducto(10).getIdProducto();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            productoService.disminuirStock(id, 3);
+            assertThat(stockLedger.stockEnMemoria(id)).isEqualTo(7);
+            status.setRollbackOnly();
+        });
+
+        assertThat(stockLedger.stockEnMemoria(id)).isEqualTo(10);
+        stockLedger.volcarPendientes();
+        assertThat(stockEnBase(id)).isEqualTo(10);
+    }
+
+    @Test
+    void unLoteDeMovimientosRevertidoDevuelveLasUnidadesALaCelda() {
+        Integer id = crearProducto(10).getIdProducto();
+        productoService.disminuirStock(id, 1);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            productoService.aplicarMovimientos(List.of(
+                    new MovimientoStock(id, MovimientoStock.Tipo.DISMINUIR, 4, null),
+                    new MovimientoStock(id, MovimientoStock.Tipo.AUMENTAR, 2, new BigDecimal("8.00"))));
+            status.setRollbackOnly();
+        });
+
+        assertThat(stockLedger.stockEnMemoria(id)).isEqualTo(9);
+        stockLedger.volcarPendientes();
+        assertThat(stockEnBase(id)).isEqualTo(9);
+    }
+
+    @Test
+    void elArranqueAplicaUnaSolaVezLosMovimientosPendientesDelWal() throws IOException {
+        Integer id = crearProducto(10).getIdProducto();
+        Path directorio = Files.createTempDirectory("stock-ledger-recuperacion");
+        // Lo que deja una instancia que se cae antes de volcar: dos disminuciones y la
+        // compensación de una de ellas.
+        byte[] segmento = registros(id, -3, -2, 2);
+
+        Files.write(directorio.resolve("stock-0000000000000000001.wal"), segmento);
+        arrancarYDetener(directorio);
+
+        assertThat(stockEnBase(id)).isEqualTo(7);
+        try (var restantes = Files.list(directorio)) {
+            assertThat(restantes).noneMatch(ruta -> ruta.getFileName().toString().equals("stock-0000000000000000001.wal"));
+        }
+
+        // Un segmento que sobrevivió a la recuperación anterior no vuelve a aplicarse.
+        Files.write(directorio.resolve("stock-0000000000000000001.wal"), segmento);
+        arrancarYDetener(directorio);
+
+        assertThat(stockEnBase(id)).isEqualTo(7);
+    }
+
+    private void arrancarYDetener(Path directorio) throws IOException {
+        StockLedger reiniciado = new StockLedger(jdbcTemplate, transactionTemplate, cacheSegundoNivel,
+                registroOutbox, productoCache, true, directorio.toString());
+        reiniciado.iniciar();
+        reiniciado.detener();
+    }
+
+    /** Registros del WAL (secuencia, producto, delta) con secuencias desde 1. */
+    private static byte[] registros(Integer idProducto, int... deltas) {
+        long secuencia = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(deltas.length * (Long.BYTES + 2 * Integer.BYTES));
+        for (int delta : deltas) {
+            buffer.putLong(++secuencia).putInt(idProducto).putInt(delta);
+        }
+        return buffer.array();
+    }
+
+    private int stockEnBase(Integer id) {
+        return jdbcTemplate.queryForObject("SELECT stock_actual FROM productos WHERE id_producto = ?", Integer.class,
+                id);
+    }
+
+    private Producto crearProducto(int stock) {
+        Producto producto = new Producto();
+        producto.setNombreProducto("Libro " + System.nanoTime());
+        producto.setPrecioVenta(new BigDecimal("10.00"));
+        producto.setCostoCompra(new BigDecimal("8.00"));
+        producto.setStockActual(stock);
+        return productoService.crear(producto);
+    }
+}